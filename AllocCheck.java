@@ -0,0 +1,102 @@
+// AllocCheck.java
+
+import java.lang.management.ManagementFactory;
+
+/** Check that steady-state simulation allocates next to nothing.
+ *  <p>This runs the epidemic simulator, exactly as <code>Epidemic</code>
+ *  would, with the same command line arguments, but it also measures the
+ *  bytes allocated by the simulation thread and the number of events
+ *  triggered between two times well after model construction.
+ *  At the end time, it reports the bytes allocated per event on standard
+ *  error and stops, with an error if that is more than the limit.
+ *  <p>Options, which must come first:
+ *  <br><tt>-from=</tt><i>d</i> start measuring at day <i>d</i>
+ *  <br><tt>-to=</tt><i>d</i> stop measuring at day <i>d</i>
+ *  <br><tt>-limit=</tt><i>b</i> allow at most <i>b</i> bytes per event
+ *  <br>All other arguments are passed on to <code>Epidemic</code>.
+ *  @author agent
+ *  @version Oct. 16, 2026 allocation check for the event path
+ *  @see Epidemic
+ *  @see Simulator
+ */
+class AllocCheck {
+    private AllocCheck() {} // prevent construction of instances!  Don't call!
+
+    // the measurements taken at the start time
+    private static long startBytes;
+    private static long startEvents;
+    private static boolean measured = false; // is the end time reached?
+
+    // default times to measure between, in days, and the default limit
+    private static double from = 10.0;
+    private static double to = 20.0;
+    private static double limit = 1.0;
+
+    // the bytes allocated so far by this thread
+    private static long allocated() {
+	return ((com.sun.management.ThreadMXBean)
+	    ManagementFactory.getThreadMXBean()
+	).getCurrentThreadAllocatedBytes();
+    }
+
+    /** The main method.
+     *  @param args  the options above, then the arguments to Epidemic
+     */
+    public static void main( String[] args ) {
+	int arg = 0; // index of the next argument to process
+	try {
+	    while ((arg < args.length) && args[arg].startsWith( "-" )) {
+		if (args[arg].startsWith( "-from=" )) {
+		    from = Double.parseDouble( args[arg].substring( 6 ) );
+		} else if (args[arg].startsWith( "-to=" )) {
+		    to = Double.parseDouble( args[arg].substring( 4 ) );
+		} else if (args[arg].startsWith( "-limit=" )) {
+		    limit = Double.parseDouble( args[arg].substring( 7 ) );
+		} else {
+		    break; // the rest are for Epidemic
+		}
+		arg = arg + 1;
+	    }
+	} catch ( NumberFormatException e ) {
+	    Error.fatal( "bad option: " + args[arg] );
+	}
+	if (!(from < to)) Error.fatal( "nothing to measure" );
+
+	// the measuring events go in before the model's events
+	Simulator.schedule( from * Time.day, (double t)-> {
+	    startEvents = Simulator.triggered();
+	    startBytes = allocated();
+	} );
+	Simulator.schedule( to * Time.day, (double t)-> {
+	    final long bytes = allocated() - startBytes;
+	    final long events = Simulator.triggered() - startEvents;
+	    measured = true;
+	    report( bytes, events );
+	} );
+
+	// the simulation exits when it ends, so catch it ending too soon
+	Runtime.getRuntime().addShutdownHook( new Thread( ()-> {
+	    if (!measured) {
+		System.err.println( "AllocCheck: simulation ended too soon" );
+		Runtime.getRuntime().halt( 1 ); // exit would hang in a hook
+	    }
+	} ) );
+
+	final String[] rest = new String[args.length - arg];
+	System.arraycopy( args, arg, rest, 0, rest.length );
+	Epidemic.main( rest );
+    }
+
+    // report the measurements and stop, with an error if there were too many
+    private static void report( long bytes, long events ) {
+	final double perEvent = (double)bytes / events;
+	System.err.printf(
+	    "days %s to %s: %d events, %d bytes, %.3f bytes per event%n",
+	    from, to, events, bytes, perEvent
+	);
+	if (perEvent > limit) {
+	    Error.fatal( "more than " + limit + " bytes allocated per event" );
+	}
+	System.exit( 0 );
+    }
+}
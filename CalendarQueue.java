@@ -0,0 +1,389 @@
+// CalendarQueue.java
+
+/** A calendar queue pending event set for the simulation framework.
+ *  <p>This follows R. Brown, Calendar Queues: A Fast O(1) Priority Queue
+ *  Implementation for the Simulation Event Set Problem, CACM, Oct. 1988.
+ *  Time is divided into days of equal width, and days are mapped onto
+ *  a circular array of buckets, a year, like the days of a desk calendar.
+ *  Each bucket holds a sorted doubly linked list of events, in which the
+ *  first and last events of each run of equal times point to each other.
+ *  The model schedules thousands of events for exactly the same time, so
+ *  searches for the place to insert an event skip over whole runs.
+ *  When most events fall a short time into the future, as they do in the
+ *  epidemic model, both insertion and removal take constant amortized time.
+ *  <p>Times are integer ticks and the width of each bucket is a power of
+ *  two ticks, so the bucket for a time is found with a shift and a mask,
+ *  much as in a radix sort.
+ *  <p>The number of buckets doubles or halves as the number of pending events
+ *  changes, and each time this happens, the bucket width is recomputed from
+ *  the spacing of the events near the head of the queue.
+ *  Because the spacing of events changes as a simulation runs, the width
+ *  is also recomputed whenever the average number of steps taken to add or
+ *  remove an event grows too large.
+ *  <p>Events with equal times are delivered in the order they were added,
+ *  and events that will never happen are kept on a separate overflow list,
+ *  after all the others.
+ *  <p>During a bulk load, events are simply appended to a loading list.
+ *  When the load is finished, the calendar is built just once, sized for
+ *  all of the events, with the bucket width guessed from their spread.
+ *  <p>Only class <code>Simulator</code> should ever touch this.
+ *  @author agent
+ *  @version Oct. 16, 2026 bulk loading
+ *  @see Simulator
+ *  @see EventSet
+ */
+class CalendarQueue implements EventSet {
+    // buckets, each the head and tail of a sorted doubly linked list of events
+    // the extra bucket at the end is the overflow list for events at never
+    // and the one after that is the loading list used during bulk loads
+    private Simulator.RealEvent[] head;
+    private Simulator.RealEvent[] tail;
+    private int buckets;       // the number of buckets, a power of two
+    private int shift;         // each bucket is 2 to this power ticks wide
+
+    private int size = 0;      // the number of events in all buckets
+    private int finite = 0;    // the number of events not in the overflow
+			       // or loading lists
+    private boolean bulk = false; // is there a bulk load going on?
+
+    // where the last event was found: the virtual bucket number is the
+    // event time shifted right, counting from time zero
+    private long current = 0;  // virtual bucket number of the scan position
+    private long lastTime = 0; // time of the last event removed
+
+    // cost accounting used to decide when the bucket width is wrong
+    private int operations = 0; // adds and removes since the last check
+    private long steps = 0;     // buckets or list entries examined by them
+
+    // how many events to sample when recomputing the bucket width
+    private static final int sampleSize = 25;
+
+    // how many steps per operation on average are tolerable
+    private static final int tolerableSteps = 8;
+
+    /** Construct an empty calendar queue.
+     */
+    public CalendarQueue() {
+	build( 2, log2( Time.ticksPerHour ) );
+    }
+
+    /** Is the calendar queue empty?
+     *  @return true if there are no pending events
+     */
+    public boolean isEmpty() {
+	return size == 0;
+    }
+
+    /** How many events are pending?
+     *  @return the number of events in the calendar queue
+     */
+    public int size() {
+	return size;
+    }
+
+    /** Add an event to the calendar queue.
+     *  @param e  the event, which must not already be in the queue
+     */
+    public void add( Simulator.RealEvent e ) {
+	insert( e );
+	if (bulk) {
+	    // no resizing until the load is finished
+	} else if (finite > 2 * buckets) {
+	    resize( 2 * buckets );
+	} else {
+	    account();
+	}
+    }
+
+    /** Start a bulk load.
+     *  @see EventSet
+     */
+    public void startBulk() {
+	bulk = true;
+    }
+
+    /** Finish a bulk load, building the calendar for all the loaded events.
+     *  @see EventSet
+     */
+    public void finishBulk() {
+	bulk = false;
+
+	// find the spread of the loaded events
+	long min = Time.never;
+	long max = 0;
+	int loaded = 0;
+	for (Simulator.RealEvent e = head[buckets + 1]; e != null; e = e.next) {
+	    if (e.time != Time.never) {
+		min = Math.min( min, e.time );
+		max = Math.max( max, e.time );
+		loaded = loaded + 1;
+	    }
+	}
+
+	// enough buckets for everything, each about 3 mean gaps wide, as
+	// Brown suggests; cost accounting will fix the width if this is wrong
+	// the loading list is always emptied, even if it holds only events at
+	// never, but the width only changes if the spread can be estimated
+	int n = buckets;
+	while (finite + loaded > 2 * n) n = 2 * n;
+	int w = shift;
+	if (loaded > 1) w = log2( 3 * ((max - min) / loaded) );
+	rebuild( n, w );
+    }
+
+    /** Return the earliest event in the calendar queue without removing it.
+     *  @return the earliest event, or null if the queue is empty
+     */
+    public Simulator.RealEvent peek() {
+	if (size == 0) return null;
+	if (finite == 0) return head[buckets];
+	return findFirst();
+    }
+
+    /** Remove and return the earliest event in the calendar queue.
+     *  @return the earliest event, or null if the queue is empty
+     */
+    public Simulator.RealEvent poll() {
+	if (size == 0) return null;
+	Simulator.RealEvent e;
+	if (finite == 0) { // only the overflow list remains
+	    e = head[buckets];
+	} else {
+	    e = findFirst();
+	    lastTime = e.time;
+	}
+	unlink( e );
+	if ((finite < buckets / 2) && (buckets > 2)) {
+	    resize( buckets / 2 );
+	} else {
+	    account();
+	}
+	return e;
+    }
+
+    /** Remove an arbitrary event from the calendar queue.
+     *  @param e  the event to remove
+     *  @return true if the event was in the queue, false if it was not
+     */
+    public boolean remove( Simulator.RealEvent e ) {
+	if (!contains( e )) return false;
+	unlink( e );
+	account();
+	return true;
+    }
+
+    /** Change the time of an event in the calendar queue.
+     *  <p>The event goes after any other events already pending at the new
+     *  time, just as if it had been removed and added again.
+     *  @param e  the event to change
+     *  @param t  the new time, in ticks
+     *  @return true if the event was in the queue, false if it was not
+     */
+    public boolean reschedule( Simulator.RealEvent e, long t ) {
+	if (!contains( e )) return false;
+	unlink( e );
+	e.time = t;
+	insert( e );
+	account();
+	return true;
+    }
+
+    // is e in one of our buckets?
+    private boolean contains( Simulator.RealEvent e ) {
+	int i = e.index;
+	if ((i < 0) || (i > buckets + 1)) return false;
+	return (e.prev != null) || (head[i] == e);
+    }
+
+    // count an operation, recompute the width if they have grown costly
+    private void account() {
+	operations = operations + 1;
+	if (operations >= buckets) {
+	    if (steps > (long)tolerableSteps * operations) resize( buckets );
+	    operations = 0;
+	    steps = 0;
+	}
+    }
+
+    // the virtual bucket number for a time, assuming the time is not never
+    private long virtual( long t ) {
+	return t >> shift;
+    }
+
+    // the base 2 logarithm of w, rounded down, zero if w is not positive
+    private static int log2( long w ) {
+	return (w > 0) ? 63 - Long.numberOfLeadingZeros( w ) : 0;
+    }
+
+    // find the earliest finite event without removing it
+    private Simulator.RealEvent findFirst() {
+	// scan one year of buckets, starting where the last event was found
+	long v = current;
+	for (int n = 0; n < buckets; n++) {
+	    Simulator.RealEvent e = head[(int)(v & (buckets - 1))];
+	    if ((e != null) && (virtual( e.time ) <= v)) {
+		steps = steps + n;
+		current = v;
+		return e;
+	    }
+	    v = v + 1;
+	}
+
+	// nothing in the coming year, so search directly for the earliest
+	steps = steps + 2 * buckets;
+	Simulator.RealEvent first = null;
+	for (int i = 0; i < buckets; i++) {
+	    Simulator.RealEvent e = head[i];
+	    if ((e != null) && ((first == null) || (e.time < first.time))) {
+		first = e;
+	    }
+	}
+	current = virtual( first.time );
+	return first;
+    }
+
+    // put e in its bucket, after any events with the same time
+    private void insert( Simulator.RealEvent e ) {
+	int i;
+	if (bulk) { // the loading list, in the order events are added
+	    i = buckets + 1;
+	} else if (e.time != Time.never) {
+	    long v = virtual( e.time );
+	    if (v < current) current = v; // scheduled before the scan position
+	    i = (int)(v & (buckets - 1));
+	    finite = finite + 1;
+	} else {
+	    i = buckets;
+	}
+	size = size + 1;
+	e.index = i;
+
+	// find s, the first event in the bucket that comes after e
+	Simulator.RealEvent t = tail[i];
+	Simulator.RealEvent s = null;
+	if ((t != null) && (t.time > e.time) && !bulk) {
+	    // search run by run from both ends at once, so that long runs of
+	    // equal times and long lists cost little to search through
+	    s = head[i];
+	    Simulator.RealEvent b = t.run; // the first event of the last run
+	    while (s.time <= e.time) {
+		if (b.prev.time <= e.time) {
+		    s = b;
+		    break;
+		}
+		s = s.run.next;
+		b = b.prev.run;
+		steps = steps + 1;
+	    }
+	}
+
+	// link e in just before s, or at the end of the bucket if s is null
+	Simulator.RealEvent p = (s == null) ? t : s.prev;
+	e.next = s;
+	e.prev = p;
+	if (p == null) head[i] = e; else p.next = e;
+	if (s == null) tail[i] = e; else s.prev = e;
+
+	// e either joins the run of events with the same time or starts one
+	if ((p != null) && (p.time == e.time)) {
+	    Simulator.RealEvent first = p.run;
+	    first.run = e;
+	    e.run = first;
+	} else {
+	    e.run = e;
+	}
+    }
+
+    // take e out of its bucket
+    private void unlink( Simulator.RealEvent e ) {
+	int i = e.index;
+
+	// if e is at either end of a run of equal times, fix the run
+	boolean first = (e.prev == null) || (e.prev.time != e.time);
+	boolean last = (e.next == null) || (e.next.time != e.time);
+	if (first && !last) {
+	    e.run.run = e.next;
+	    e.next.run = e.run;
+	} else if (last && !first) {
+	    e.run.run = e.prev;
+	    e.prev.run = e.run;
+	}
+
+	if (e.prev == null) head[i] = e.next; else e.prev.next = e.next;
+	if (e.next == null) tail[i] = e.prev; else e.next.prev = e.prev;
+	e.next = null;
+	e.prev = null;
+	e.run = null;
+	e.index = -1;
+	size = size - 1;
+	if (i < buckets) finite = finite - 1;
+    }
+
+    // make an empty calendar with n buckets, each 2 to the power w wide
+    private void build( int n, int w ) {
+	buckets = n;
+	shift = w;
+	head = new Simulator.RealEvent[n + 2];
+	tail = new Simulator.RealEvent[n + 2];
+	size = 0;
+	finite = 0;
+	current = virtual( lastTime );
+    }
+
+    // change the number of buckets and recompute the bucket width
+    private void resize( int n ) {
+	rebuild( n, newWidth() );
+    }
+
+    // rebuild the calendar with n buckets, each 2 to the power w wide
+    private void rebuild( int n, int w ) {
+	Simulator.RealEvent[] oldHead = head;
+	build( n, w );
+
+	// move all the events, keeping events with equal times in order
+	for (Simulator.RealEvent list: oldHead) {
+	    Simulator.RealEvent e = list;
+	    while (e != null) {
+		Simulator.RealEvent next = e.next;
+		insert( e );
+		e = next;
+	    }
+	}
+    }
+
+    // estimate a good bucket width from the spacing of the earliest events
+    // the width is returned as a power of two
+    private int newWidth() {
+	// collect the distinct times of the earliest events, in time order
+	// ties are skipped because they tell us nothing about the spacing
+	long[] times = new long[sampleSize];
+	int count = 0;
+	long v = current;
+	for (int n = 0; (n < buckets) && (count < sampleSize); n++) {
+	    Simulator.RealEvent e = head[(int)(v & (buckets - 1))];
+	    while ((e != null) && (count < sampleSize)
+		&& (virtual( e.time ) == v)) {
+		if ((count == 0) || (e.time != times[count - 1])) {
+		    times[count] = e.time;
+		    count = count + 1;
+		}
+		e = e.next;
+	    }
+	    v = v + 1;
+	}
+	if (count < 2) return shift; // not enough information, no change
+
+	// Brown's rule: 3 times the mean gap, ignoring unusually large gaps
+	double mean = (double)(times[count - 1] - times[0]) / (count - 1);
+	double sum = 0.0;
+	int gaps = 0;
+	for (int i = 1; i < count; i++) {
+	    long gap = times[i] - times[i - 1];
+	    if (gap <= 2 * mean) {
+		sum = sum + gap;
+		gaps = gaps + 1;
+	    }
+	}
+	return log2( Math.round( 3.0 * (sum / gaps) ) );
+    }
+}
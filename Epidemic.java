@@ -23,7 +23,7 @@ import java.io.FileNotFoundException;
  *  be broken over multiple lines.  A model may include any number of
  *  role and place specifications.
  *  @author Douglas W. Jones
- *  @version Apr. 13, 2021 improved Javadoc comments
+ *  @version Oct. 16, 2026 threads option
  *  @see MyScanner
  *  @see InfectionRule
  *  @see Role
@@ -140,19 +140,105 @@ public class Epidemic {
      *  <p>Most of this code is entirely about command line argument processing.
      *  It builds the model and then starts the simulation.
      *  <p>One command line argument is mandatory, name of the file
-     *  holding the model description.
+     *  holding the model description.  It may be preceded by options:
+     *  <br><tt>-calendar</tt> use a calendar queue for pending events
+     *  <br><tt>-infection=</tt><i>engine</i> how infections are scheduled,
+     *  <tt>person</tt> (the default), <tt>place</tt> or <tt>exposure</tt>
+     *  <br><tt>-lazy</tt> only track the movements of people whose every
+     *  trip is certain while they are contageous; implies
+     *  <tt>-infection=place</tt>
+     *  <br><tt>-leap=</tt><i>n</i> use tau leaping for all kinds of places
+     *  with a median size of at least <i>n</i>
+     *  <br><tt>-mix=</tt><i>n</i> treat all places with a capacity of at
+     *  least <i>n</i> as well mixed
+     *  <br><tt>-offheap</tt> keep the state of people and places off the
+     *  Java heap
+     *  <br><tt>-offheap=</tt><i>f</i> keep the state of people and places
+     *  in a memory-mapped file named <i>f</i>
+     *  <br><tt>-seed=</tt><i>n</i> seed the random numbers, for repeatable runs
+     *  <br><tt>-spill=</tt><i>d</i> keep only events within <i>d</i> days
+     *  in memory, spilling later ones to disk; <i>d</i> is at least an hour
+     *  <br><tt>-threads=</tt><i>n</i> build the model on <i>n</i> threads,
+     *  by default one per processor; the model does not depend on <i>n</i>
      *  @param args  the command line arguments
      */
     public static void main( String[] args ) {
-	if (args.length < 1) Error.fatal( "missing file name" );
-	if (args.length > 1) Error.warn( "too many arguments: " + args[1] );
+	int arg = 0; // index of the next argument to process
+	boolean lazy = false; // was -lazy given?
+	while ((arg < args.length) && args[arg].startsWith( "-" )) {
+	    if ("-calendar".equals( args[arg] )) {
+		Simulator.useCalendarQueue();
+	    } else if (args[arg].startsWith( "-infection=" )) {
+		if (!Place.useInfectionEngine( args[arg].substring( 11 ) )) {
+		    Error.warn( "unknown infection engine: " + args[arg] );
+		}
+	    } else if ("-lazy".equals( args[arg] )) {
+		lazy = true;
+	    } else if (args[arg].startsWith( "-leap=" )) {
+		try {
+		    PlaceKind.leapAtLeast(
+			Double.parseDouble( args[arg].substring( 6 ) )
+		    );
+		} catch ( NumberFormatException e ) {
+		    Error.warn( "bad leap: " + args[arg] );
+		}
+	    } else if (args[arg].startsWith( "-mix=" )) {
+		try {
+		    Place.mixAtLeast(
+			Integer.parseInt( args[arg].substring( 5 ) )
+		    );
+		} catch ( NumberFormatException e ) {
+		    Error.warn( "bad mix: " + args[arg] );
+		}
+	    } else if ("-offheap".equals( args[arg] )) {
+		Store.useDirect();
+	    } else if (args[arg].startsWith( "-offheap=" )) {
+		Store.useMappedFile( args[arg].substring( 9 ) );
+	    } else if (args[arg].startsWith( "-seed=" )) {
+		try {
+		    MyRandom.stream.setSeed(
+			Long.parseLong( args[arg].substring( 6 ) )
+		    );
+		} catch ( NumberFormatException e ) {
+		    Error.warn( "bad seed: " + args[arg] );
+		}
+	    } else if (args[arg].startsWith( "-spill=" )) {
+		try {
+		    final double d
+			= Double.parseDouble( args[arg].substring( 7 ) );
+		    if (!(d > 0.0)) throw new NumberFormatException();
+		    Simulator.useSpill( d * Time.day );
+		} catch ( NumberFormatException e ) {
+		    Error.warn( "bad spill: " + args[arg] );
+		}
+	    } else if (args[arg].startsWith( "-threads=" )) {
+		try {
+		    final int n = Integer.parseInt( args[arg].substring( 9 ) );
+		    if (n < 1) throw new NumberFormatException();
+		    Parallel.useThreads( n );
+		} catch ( NumberFormatException e ) {
+		    Error.warn( "bad threads: " + args[arg] );
+		}
+	    } else {
+		Error.warn( "unknown option: " + args[arg] );
+	    }
+	    arg = arg + 1;
+	}
+	if (lazy) { // the untracked can only be infected by places
+	    Person.useLazyMobility();
+	    Place.useInfectionEngine( "place" );
+	}
+	if (args.length <= arg) Error.fatal( "missing file name" );
+	if (args.length > arg + 1) {
+	    Error.warn( "too many arguments: " + args[arg + 1] );
+	}
 	try {
-	    buildModel( new MyScanner( new File( args[0] ) ) );
+	    buildModel( new MyScanner( new File( args[arg] ) ) );
 	    // Person.printAll();    // BUG:  potentially useful for debugging
 	    Person.startReporting( true ); // start the results report
 	    Simulator.run();               // and simulate
 	} catch ( FileNotFoundException e ) {
-	    Error.fatal( "could not open file: " + args[0] );
+	    Error.fatal( "could not open file: " + args[arg] );
 	}
     }
 }
@@ -0,0 +1,157 @@
+// EventHeap.java
+
+import java.util.Arrays;
+
+/** The default pending event set used by the simulation framework.
+ *  <p>This is a binary heap, stored in an array, in which every event
+ *  records its own slot in the array.
+ *  Because each event knows where it is, removing an event from the middle
+ *  of the heap or changing its time costs O(log n) instead of the O(n)
+ *  search needed by <code>java.util.PriorityQueue.remove(Object)</code>.
+ *  <p>During a bulk load, events are just appended to the array, and when
+ *  the load is finished, the array is made into a heap in linear time by
+ *  Floyd's method.
+ *  <p>Only class <code>Simulator</code> should ever touch this.
+ *  @author agent
+ *  @version Oct. 16, 2026 bulk loading
+ *  @see Simulator
+ *  @see EventSet
+ */
+class EventHeap implements EventSet {
+    // the heap itself, slot 0 is the root, slots size and up are unused
+    private Simulator.RealEvent[] heap = new Simulator.RealEvent[64];
+    private int size = 0;
+    private boolean bulk = false; // during a bulk load, heap is out of order
+
+    /** Is the heap empty?
+     *  @return true if there are no pending events
+     */
+    public boolean isEmpty() {
+	return size == 0;
+    }
+
+    /** How many events are pending?
+     *  @return the number of events in the heap
+     */
+    public int size() {
+	return size;
+    }
+
+    /** Add an event to the heap.
+     *  @param e  the event, which must not already be in the heap
+     */
+    public void add( Simulator.RealEvent e ) {
+	if (size == heap.length) {
+	    heap = Arrays.copyOf( heap, size * 2 );
+	}
+	if (bulk) { // just put it at the end
+	    heap[size] = e;
+	    e.index = size;
+	} else {
+	    siftUp( size, e );
+	}
+	size = size + 1;
+    }
+
+    /** Start a bulk load.
+     *  @see EventSet
+     */
+    public void startBulk() {
+	bulk = true;
+    }
+
+    /** Finish a bulk load, building the heap bottom up.
+     *  @see EventSet
+     */
+    public void finishBulk() {
+	bulk = false;
+	for (int i = (size >>> 1) - 1; i >= 0; i--) siftDown( i, heap[i] );
+    }
+
+    /** Return the earliest event in the heap without removing it.
+     *  @return the earliest event, or null if the heap is empty
+     */
+    public Simulator.RealEvent peek() {
+	return heap[0];
+    }
+
+    /** Remove and return the earliest event in the heap.
+     *  @return the earliest event, or null if the heap is empty
+     */
+    public Simulator.RealEvent poll() {
+	if (size == 0) return null;
+	Simulator.RealEvent first = heap[0];
+	size = size - 1;
+	Simulator.RealEvent last = heap[size];
+	heap[size] = null;
+	if (size > 0) siftDown( 0, last );
+	first.index = -1;
+	return first;
+    }
+
+    /** Remove an arbitrary event from the heap.
+     *  @param e  the event to remove
+     *  @return true if the event was in the heap, false if it was not
+     */
+    public boolean remove( Simulator.RealEvent e ) {
+	int i = e.index;
+	if ((i < 0) || (i >= size) || (heap[i] != e)) return false;
+	size = size - 1;
+	Simulator.RealEvent last = heap[size];
+	heap[size] = null;
+	if (i < size) { // the hole left by e must be filled by last
+	    siftDown( i, last );
+	    if (heap[i] == last) siftUp( i, last );
+	}
+	e.index = -1;
+	return true;
+    }
+
+    /** Change the time of an event in the heap, restoring heap order.
+     *  @param e  the event to change
+     *  @param t  the new time, in ticks
+     *  @return true if the event was in the heap, false if it was not
+     */
+    public boolean reschedule( Simulator.RealEvent e, long t ) {
+	int i = e.index;
+	if ((i < 0) || (i >= size) || (heap[i] != e)) return false;
+	e.time = t;
+	siftUp( i, e );
+	if (heap[i] == e) siftDown( i, e );
+	return true;
+    }
+
+    // move e up from slot i until its parent is no later than it is
+    private void siftUp( int i, Simulator.RealEvent e ) {
+	while (i > 0) {
+	    int parent = (i - 1) >>> 1;
+	    Simulator.RealEvent p = heap[parent];
+	    if (!e.before( p )) break;
+	    heap[i] = p;
+	    p.index = i;
+	    i = parent;
+	}
+	heap[i] = e;
+	e.index = i;
+    }
+
+    // move e down from slot i until neither child is earlier than it is
+    private void siftDown( int i, Simulator.RealEvent e ) {
+	int half = size >>> 1; // slots at or above half are leaves
+	while (i < half) {
+	    int child = (2 * i) + 1;
+	    Simulator.RealEvent c = heap[child];
+	    int right = child + 1;
+	    if ((right < size) && heap[right].before( c )) {
+		child = right;
+		c = heap[child];
+	    }
+	    if (!c.before( e )) break;
+	    heap[i] = c;
+	    c.index = i;
+	    i = child;
+	}
+	heap[i] = e;
+	e.index = i;
+    }
+}
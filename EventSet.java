@@ -0,0 +1,66 @@
+// EventSet.java
+
+/** Interface to the pending event set used by the simulation framework.
+ *  <p>Each implementation holds all of the scheduled but not yet triggered
+ *  events, and must deliver them in time order.
+ *  Events with equal times may be delivered in any order.
+ *  <p>Only class <code>Simulator</code> should ever touch this.
+ *  @author agent
+ *  @version Oct. 16, 2026 bulk loading
+ *  @see Simulator
+ *  @see EventHeap
+ *  @see CalendarQueue
+ */
+interface EventSet {
+
+    /** Is the event set empty?
+     *  @return true if there are no pending events
+     */
+    boolean isEmpty();
+
+    /** How many events are pending?
+     *  @return the number of events in the set
+     */
+    int size();
+
+    /** Add an event to the set.
+     *  @param e  the event, which must not already be in the set
+     */
+    void add( Simulator.RealEvent e );
+
+    /** Start a bulk load.
+     *  <p>Until the bulk load is finished, events may be added, removed
+     *  and rescheduled, but the set need not keep them in order, so
+     *  <code>peek</code> and <code>poll</code> must not be used.
+     *  @see finishBulk
+     */
+    void startBulk();
+
+    /** Finish a bulk load, putting all of the events in order at once.
+     *  @see startBulk
+     */
+    void finishBulk();
+
+    /** Return the earliest event in the set without removing it.
+     *  @return the earliest event, or null if the set is empty
+     */
+    Simulator.RealEvent peek();
+
+    /** Remove and return the earliest event in the set.
+     *  @return the earliest event, or null if the set is empty
+     */
+    Simulator.RealEvent poll();
+
+    /** Remove an arbitrary event from the set.
+     *  @param e  the event to remove
+     *  @return true if the event was in the set, false if it was not
+     */
+    boolean remove( Simulator.RealEvent e );
+
+    /** Change the time of an event in the set.
+     *  @param e  the event to change
+     *  @param t  the new time, in ticks
+     *  @return true if the event was in the set, false if it was not
+     */
+    boolean reschedule( Simulator.RealEvent e, long t );
+}
@@ -0,0 +1,186 @@
+// EventSpill.java
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Far future coded events, spilled to disk.
+ *  <p>Time is divided into partitions of equal width.  Coded events in
+ *  partitions that have not yet been loaded are not kept in memory, they
+ *  are appended to a file for their partition.  When the simulation needs
+ *  a partition, its whole file is mapped into memory and its events are
+ *  moved into the pending event set, with their original sequence numbers,
+ *  so the order in which events are triggered is exactly the same as if
+ *  they had never left memory.
+ *  <p>Only coded events without handles are spilled, and never events at
+ *  <code>Time.never</code>; events that may be cancelled or rescheduled
+ *  must stay where they can be found.
+ *  <p>A file is only open while events are written to it or read back,
+ *  and each partition buffers only a few events until it has many, so
+ *  partitions that are not loaded cost little.  There are never more than
+ *  <code>maxPartitions</code> of them; events too far in the future for
+ *  that go in the last one, and come back into memory a little early.
+ *  <p>Only class <code>Simulator</code> should ever touch this.
+ *  @author agent
+ *  @version Oct. 16, 2026 keep far future events out of memory
+ *  @see Simulator
+ *  @see PackedEventHeap
+ */
+class EventSpill {
+    private final long width;  // the width of each partition, in ticks
+    private long loadedUntil;  // events before this time are all in memory
+    private final Path directory; // where the partition files are
+
+    // the partitions not yet loaded, indexed by time divided by width
+    private final TreeMap<Long,Partition> partitions = new TreeMap<>();
+
+    /** The most partitions that are ever waiting to be loaded.
+     */
+    static final int maxPartitions = 1024;
+
+    // each event on disk is a record of three longs
+    // its time, its sequence number and its payload
+    private static final int recordSize = 3 * Long.BYTES;
+    private static final int firstBufferSize = 16 * recordSize;
+    private static final int bufferSize = 1024 * recordSize;
+
+    /** A partition, holding the spilled events for one span of time.
+     */
+    private class Partition {
+	final Path path;
+	ByteBuffer buffer = ByteBuffer.allocate( firstBufferSize );
+	boolean written = false; // has anything been written to the file?
+
+	Partition( long k ) {
+	    path = directory.resolve( "partition" + k );
+	}
+
+	// make room for one more record, writing out the buffer if it is full
+	void makeRoom() throws IOException {
+	    if (buffer.hasRemaining()) return;
+	    if (buffer.capacity() < bufferSize) { // grow the buffer
+		final ByteBuffer b
+		    = ByteBuffer.allocate( 2 * buffer.capacity() );
+		buffer.flip();
+		buffer = b.put( buffer );
+	    } else {
+		flush();
+	    }
+	}
+
+	// append whatever is buffered to the file, open only while writing
+	void flush() throws IOException {
+	    buffer.flip();
+	    try (FileChannel channel = FileChannel.open( path,
+		StandardOpenOption.CREATE,
+		StandardOpenOption.APPEND,
+		StandardOpenOption.WRITE
+	    )) {
+		while (buffer.hasRemaining()) channel.write( buffer );
+	    }
+	    buffer.clear();
+	    written = true;
+	}
+    }
+
+    /** Make an empty spill.
+     *  <p>The first partition, from time zero to <code>w</code>, is loaded.
+     *  @param w  the width of each partition, in ticks
+     */
+    EventSpill( long w ) {
+	width = w;
+	loadedUntil = w;
+	Path d = null;
+	try {
+	    d = Files.createTempDirectory( "epidemic" );
+	} catch ( IOException e ) {
+	    Error.fatal( "cannot spill events: " + e.getMessage() );
+	}
+	directory = d;
+
+	// on exit, delete the partition files that remain, then the directory
+	final File dir = d.toFile();
+	Runtime.getRuntime().addShutdownHook( new Thread( ()-> {
+	    final File[] files = dir.listFiles();
+	    if (files != null) for (File f: files) f.delete();
+	    dir.delete();
+	} ) );
+    }
+
+    /** Spill an event if it belongs to a partition that is not loaded.
+     *  @param t  the time of the event
+     *  @param s  its sequence number
+     *  @param p  its payload
+     *  @return true if spilled, false if it must be kept in memory
+     */
+    boolean add( long t, long s, long p ) {
+	if ((t < loadedUntil) || (t == Time.never)) return false;
+	final long k = Math.min( t / width,
+				 (loadedUntil / width) + maxPartitions - 1 );
+	try {
+	    Partition part = partitions.get( k );
+	    if (part == null) {
+		part = new Partition( k );
+		partitions.put( k, part );
+	    }
+	    part.makeRoom();
+	    part.buffer.putLong( t ).putLong( s ).putLong( p );
+	} catch ( IOException e ) {
+	    Error.fatal( "cannot spill events: " + e.getMessage() );
+	}
+	return true;
+    }
+
+    /** Are there any spilled events?
+     *  @return true if there are none
+     */
+    boolean isEmpty() {
+	return partitions.isEmpty();
+    }
+
+    /** The time before which all events are in memory.
+     *  @return the time, in ticks
+     */
+    long loadedUntil() {
+	return loadedUntil;
+    }
+
+    /** Load the earliest partition holding spilled events.
+     *  <p>This must not be called if there are no spilled events.
+     *  @param heap  where its events go
+     */
+    void load( PackedEventHeap heap ) {
+	final Map.Entry<Long,Partition> first = partitions.pollFirstEntry();
+	final Partition part = first.getValue();
+	final ByteBuffer b = part.buffer;
+	b.flip();
+	try {
+	    if (part.written) { // the file first, then what is still buffered
+		try (FileChannel channel = FileChannel.open( part.path,
+		    StandardOpenOption.READ
+		)) {
+		    final MappedByteBuffer m = channel.map(
+			FileChannel.MapMode.READ_ONLY, 0, channel.size()
+		    );
+		    while (m.hasRemaining()) {
+			heap.add( m.getLong(), m.getLong(), m.getLong() );
+		    }
+		}
+		Files.delete( part.path );
+	    }
+	    while (b.hasRemaining()) {
+		heap.add( b.getLong(), b.getLong(), b.getLong() );
+	    }
+	} catch ( IOException e ) {
+	    Error.fatal( "cannot reload spilled events: " + e.getMessage() );
+	}
+	loadedUntil = (first.getKey() + 1) * width;
+    }
+}
@@ -2,7 +2,7 @@
 
 /** Statistical Description of the disease progress.
  *  @author Douglas W. Jones
- *  @version Apr. 13, 2021 improved javadoc comments
+ *  @version Oct. 16, 2026 durations in ticks
  *  @see MyRandom
  *  @see MyScanner
  */
@@ -78,9 +78,9 @@ public class InfectionRule {
     /** Toss the dice to see how long this disease state lasts under this rule.
      *  <p>Disease duration is determined by a long-normal distribution
      *  specified with the rule.
-     *  @return the time until the next change of disease state
+     *  @return the time until the next change of disease state, in ticks
      */
-    public double duration() {
-	return rand.nextLogNormal( median, sigma );
+    public long duration() {
+	return Time.toTicks( rand.nextLogNormal( median, sigma ) );
     }
 }
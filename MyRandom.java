@@ -4,9 +4,13 @@ import java.util.Random;
 
 /** Wrapper extending class Random, turning it into a singleton class.
  *  <p>Ideally, no user should ever create an instance of Random, all use this!
+ *  The only exceptions are substreams, for jobs split into parts that may
+ *  be done in any order.  Each part has its own substream, which depends
+ *  only on the part and on numbers drawn from the only stream.
  *  @author Douglas W. Jones
- *  @version Apr. 6, 2021 lifted from Epidemic.java of that date
+ *  @version Oct. 16, 2026 substreams for parallel jobs
  *  @see Random
+ *  @see Parallel
  */
 public class MyRandom extends Random {
     /** the only random number stream
@@ -18,6 +22,31 @@ public class MyRandom extends Random {
 	super();
     }
 
+    // or substream, below
+    private MyRandom( long seed ) {
+	super( seed );
+    }
+
+    /** An independent substream of random numbers, for one part of a job.
+     *  <p>The same base and key always give the same substream.  The base
+     *  should be drawn from the only stream, once for the whole job, so
+     *  that the substreams, too, are repeatable given its seed.
+     *  @param base  shared by all parts of the job
+     *  @param key  which part of the job
+     *  @return a new substream
+     */
+    public static MyRandom substream( long base, long key ) {
+	return new MyRandom( mix( base ^ mix( key ) ) );
+    }
+
+    // scramble the bits of a long, the finalizer of the SplitMix64
+    // generator, so nearby keys give unrelated seeds
+    private static long mix( long z ) {
+	z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+	z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+	return z ^ (z >>> 31);
+    }
+
     /* alternative access to the only random number stream
      * @return the only stream
      */
@@ -43,4 +72,43 @@ public class MyRandom extends Random {
     public double nextLogNormal( double median, double sigma ) {
 	return Math.exp( sigma * this.nextGaussian() ) * median;
     }
+
+    /** Geometric distribution.
+     *  @param p  the probability of success of each trial, 0 &lt; p &lt;= 1
+     *  @return the number of failures before the first success
+     */
+    public long nextGeometric( double p ) {
+	if (p >= 1.0) return 0;
+	return (long)Math.floor(
+	    Math.log( 1.0 - this.nextDouble() ) / Math.log1p( -p )
+	);
+    }
+
+    /** Binomial distribution.
+     *  <p>When few successes are expected, this is exact, counting the
+     *  successes by skipping over runs of failures.  Otherwise, it uses the
+     *  normal approximation, which is then good to well under a percent.
+     *  @param n  the number of trials
+     *  @param p  the probability of success of each trial
+     *  @return the number of successes
+     */
+    public int nextBinomial( int n, double p ) {
+	if ((n <= 0) || !(p > 0.0)) return 0;
+	if (p >= 1.0) return n;
+	if (p > 0.5) return n - nextBinomial( n, 1.0 - p );
+	final double mean = n * p;
+	if (mean < 30.0) { // count the successes directly
+	    int successes = 0;
+	    long trial = nextGeometric( p );
+	    while (trial < n) {
+		successes = successes + 1;
+		trial = trial + 1 + nextGeometric( p );
+	    }
+	    return successes;
+	}
+	final long k = Math.round(
+	    mean + (Math.sqrt( mean * (1.0 - p) ) * this.nextGaussian())
+	);
+	return (int)Math.max( 0, Math.min( n, k ) );
+    }
 }
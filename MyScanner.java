@@ -184,6 +184,8 @@ public class MyScanner {
     public static final Pattern dash = Pattern.compile( "-|" );
     /** Parameter for <code>tryNextLiteral</code> to recognize semicolon */
     public static final Pattern semicolon = Pattern.compile( ";|" );
+    /** Parameter for <code>tryNextLiteral</code> to recognize leap */
+    public static final Pattern leap = Pattern.compile( "leap|" );
 
     /** Try to scan the next literal.
      *  <p>If the next input to the scanner is a literal, scan over it.
@@ -0,0 +1,382 @@
+// PackedEventHeap.java
+
+import java.util.Arrays;
+
+/** The pending event set for coded events.
+ *  <p>This is a binary heap, but instead of holding event objects, it
+ *  holds event times, sequence numbers and payloads in parallel arrays of
+ *  primitive values, indexed by heap slot.
+ *  Each payload packs an event code and its integer subject into a long.
+ *  Sifting events up and down the heap touches only these arrays, so it
+ *  never chases pointers to event objects scattered around memory.
+ *  <p>The heap is ordered by time alone.  Events with equal times are
+ *  taken out of the heap all at once, as a batch, and only then put in
+ *  order by their sequence numbers, so no sifting is wasted on ties.
+ *  <p>An event that may be cancelled or rescheduled gets an integer handle.
+ *  The slot of each handled event is recorded in a table indexed by handle,
+ *  and handles are recycled once their events have been triggered or
+ *  cancelled.
+ *  <p>Each pending event costs 28 bytes, 8 for its time, 8 for its sequence
+ *  number, 8 for its payload and 4 for its handle, plus 4 more in the
+ *  handle table if it has one.
+ *  <p>Only class <code>Simulator</code> should ever touch this.
+ *  @author agent
+ *  @version Oct. 16, 2026 bulk loading
+ *  @see Simulator
+ */
+class PackedEventHeap {
+    // the heap, indexed by slot, slot 0 is the root
+    private long[] times = new long[64];  // in ticks
+    private long[] seqs = new long[64];   // sequence numbers
+    private long[] payloads = new long[64];
+    private int[] handles = new int[64];  // handle of each slot, or -1
+    private int size = 0;
+    private boolean bulk = false; // during a bulk load, heap is out of order
+
+    // the slot of each handle, batched for handles in the current batch,
+    // or for free handles, -3 - the next free one
+    private int[] slots = new int[64];
+    private int handleCount = 0;       // handles ever used
+    private int freeHandle = -1;       // the first free handle, -1 if none
+    private static final int batched = -1;
+
+    // the current batch, events taken from the heap but not yet triggered
+    // in the handles of the batch, -1 means none, cancelled means cancelled
+    private long[] batchSeqs = new long[64];
+    private long[] batchPayloads = new long[64];
+    private int[] batchHandles = new int[64];
+    private int batchSize = 0;
+    private static final int cancelled = -2;
+
+    // the order of the batch, indices into the above, and sorting space
+    private int[] order = new int[64];
+    private int[] spare = new int[64];
+    private final int[] counts = new int[257];
+    private int batchNext = 0;         // index in order of the next event
+
+    /** Is the heap empty?
+     *  @return true if there are no pending events, not counting the batch
+     */
+    public boolean isEmpty() {
+	return size == 0;
+    }
+
+    /** How many events are pending?
+     *  @return the number of events in the heap, not counting the batch
+     */
+    public int size() {
+	return size;
+    }
+
+    /** Pack an event code and subject into a payload.
+     *  @param code  the event code
+     *  @param subject  the subject
+     *  @return the payload
+     */
+    public static long payload( int code, int subject ) {
+	return ((long)code << 32) | (subject & 0xFFFFFFFFL);
+    }
+
+    /** Unpack the event code from a payload.
+     *  @param p  the payload
+     *  @return the event code
+     */
+    public static int code( long p ) {
+	return (int)(p >>> 32);
+    }
+
+    /** Unpack the subject from a payload.
+     *  @param p  the payload
+     *  @return the subject
+     */
+    public static int subject( long p ) {
+	return (int)p;
+    }
+
+    /** Add an event with no handle to the heap.
+     *  @param t  the time of the event
+     *  @param s  the sequence number of the event
+     *  @param p  the payload of the event
+     */
+    public void add( long t, long s, long p ) {
+	grow();
+	if (bulk) put( size, t, s, p, -1 ); else siftUp( size, t, s, p, -1 );
+	size = size + 1;
+    }
+
+    /** Add an event with a handle to the heap.
+     *  @param t  the time of the event
+     *  @param s  the sequence number of the event
+     *  @param p  the payload of the event
+     *  @return the handle, valid until the event is triggered or cancelled
+     */
+    public int addHandled( long t, long s, long p ) {
+	int h;
+	if (freeHandle >= 0) {
+	    h = freeHandle;
+	    freeHandle = -3 - slots[h];
+	} else {
+	    if (handleCount == slots.length) {
+		slots = Arrays.copyOf( slots, handleCount * 2 );
+	    }
+	    h = handleCount;
+	    handleCount = handleCount + 1;
+	}
+	grow();
+	if (bulk) put( size, t, s, p, h ); else siftUp( size, t, s, p, h );
+	size = size + 1;
+	return h;
+    }
+
+    /** Start a bulk load.
+     *  <p>Until the bulk load is finished, events added to the heap are just
+     *  put at the end, and the heap is out of order, so only adding, removing
+     *  and rescheduling events are allowed.
+     */
+    public void startBulk() {
+	bulk = true;
+    }
+
+    /** Finish a bulk load, building the heap bottom up in linear time.
+     */
+    public void finishBulk() {
+	bulk = false;
+	for (int i = (size >>> 1) - 1; i >= 0; i--) {
+	    siftDown( i, times[i], seqs[i], payloads[i], handles[i] );
+	}
+    }
+
+    /** The time of the earliest event.
+     *  @return the time in ticks, the heap must not be empty
+     */
+    public long firstTime() {
+	return times[0];
+    }
+
+    /** Take all the events at a time out of the heap, as the new batch.
+     *  <p>The batch is put in order by sequence number.
+     *  The previous batch must have been used up.
+     *  @param t  the time, no event in the heap may be earlier
+     */
+    public void takeBatch( long t ) {
+	batchSize = 0;
+	batchNext = 0;
+	while ((size > 0) && (times[0] == t)) {
+	    if (batchSize == batchSeqs.length) {
+		batchSeqs = Arrays.copyOf( batchSeqs, batchSize * 2 );
+		batchPayloads = Arrays.copyOf( batchPayloads, batchSize * 2 );
+		batchHandles = Arrays.copyOf( batchHandles, batchSize * 2 );
+	    }
+	    batchSeqs[batchSize] = seqs[0];
+	    batchPayloads[batchSize] = payloads[0];
+	    final int h = handles[0];
+	    batchHandles[batchSize] = h;
+	    batchSize = batchSize + 1;
+	    removeSlot( 0 );
+	    if (h >= 0) slots[h] = batched; // it still belongs to the event
+	}
+	sortBatch();
+    }
+
+    /** Is there another event in the batch?
+     *  @return true if there is, cancelled events do not count
+     */
+    public boolean batchHasNext() {
+	while ((batchNext < batchSize)
+	    && (batchHandles[order[batchNext]] == cancelled)) {
+	    batchNext = batchNext + 1;
+	}
+	return batchNext < batchSize;
+    }
+
+    /** The sequence number of the next event in the batch.
+     *  @return the sequence number, batchHasNext must be true
+     */
+    public long batchSeq() {
+	return batchSeqs[order[batchNext]];
+    }
+
+    /** Remove the next event from the batch, freeing its handle if it has one.
+     *  @return its payload, batchHasNext must be true
+     */
+    public long nextFromBatch() {
+	final int i = order[batchNext];
+	batchNext = batchNext + 1;
+	final int h = batchHandles[i];
+	if (h >= 0) free( h );
+	return batchPayloads[i];
+    }
+
+    /** Remove an event given its handle.
+     *  @param h  the handle of the event
+     *  @return true if the event was pending, false if it was not
+     */
+    public boolean remove( int h ) {
+	if (pending( h )) {
+	    removeSlot( slots[h] );
+	    free( h );
+	    return true;
+	}
+	final int i = findInBatch( h );
+	if (i < 0) return false;
+	batchHandles[i] = cancelled;
+	free( h );
+	return true;
+    }
+
+    /** Change the time of an event given its handle.
+     *  <p>The event goes after any other events already pending at the new
+     *  time, just as if it had been removed and added again.
+     *  @param h  the handle of the event
+     *  @param t  the new time
+     *  @param s  the new sequence number
+     *  @return true if the event was pending, false if it was not
+     */
+    public boolean reschedule( int h, long t, long s ) {
+	if (pending( h )) {
+	    int i = slots[h];
+	    long p = payloads[i];
+	    if (siftUp( i, t, s, p, h ) == i) siftDown( i, t, s, p, h );
+	    return true;
+	}
+	final int i = findInBatch( h );
+	if (i < 0) return false;
+	batchHandles[i] = cancelled; // move it from the batch to the heap
+	grow();
+	siftUp( size, t, s, batchPayloads[i], h );
+	size = size + 1;
+	return true;
+    }
+
+    // is handle h in use by an event in the heap?
+    private boolean pending( int h ) {
+	if ((h < 0) || (h >= handleCount)) return false;
+	int i = slots[h];
+	return (i >= 0) && (i < size) && (handles[i] == h);
+    }
+
+    // where in the batch is the event with handle h, -1 if not there
+    // this is rare, so the batch is just searched
+    private int findInBatch( int h ) {
+	if ((h < 0) || (h >= handleCount) || (slots[h] != batched)) return -1;
+	for (int n = batchNext; n < batchSize; n++) {
+	    if (batchHandles[order[n]] == h) return order[n];
+	}
+	return -1;
+    }
+
+    // return handle h to the free list
+    private void free( int h ) {
+	slots[h] = -3 - freeHandle;
+	freeHandle = h;
+    }
+
+    // put the batch in order by sequence number
+    private void sortBatch() {
+	if (order.length < batchSize) {
+	    order = new int[batchSeqs.length];
+	    spare = new int[batchSeqs.length];
+	}
+	long min = Long.MAX_VALUE;
+	long max = Long.MIN_VALUE;
+	for (int i = 0; i < batchSize; i++) {
+	    order[i] = i;
+	    min = Math.min( min, batchSeqs[i] );
+	    max = Math.max( max, batchSeqs[i] );
+	}
+
+	if (batchSize < 32) { // small batches, insertion sort
+	    for (int i = 1; i < batchSize; i++) {
+		final int x = order[i];
+		int j = i;
+		while ((j > 0) && (batchSeqs[order[j - 1]] > batchSeqs[x])) {
+		    order[j] = order[j - 1];
+		    j = j - 1;
+		}
+		order[j] = x;
+	    }
+	    return;
+	}
+
+	// large batches, radix sort one byte of the sequence numbers at a time
+	// the sequence numbers are offset by min, so high bytes are all zero
+	for (int shift = 0; ((max - min) >>> shift) != 0; shift = shift + 8) {
+	    Arrays.fill( counts, 0 );
+	    for (int i = 0; i < batchSize; i++) {
+		int b = (int)(((batchSeqs[order[i]] - min) >>> shift) & 0xFF);
+		counts[b + 1] = counts[b + 1] + 1;
+	    }
+	    for (int b = 0; b < 256; b++) counts[b + 1] += counts[b];
+	    for (int i = 0; i < batchSize; i++) {
+		int b = (int)(((batchSeqs[order[i]] - min) >>> shift) & 0xFF);
+		spare[counts[b]] = order[i];
+		counts[b] = counts[b] + 1;
+	    }
+	    final int[] t = order;
+	    order = spare;
+	    spare = t;
+	}
+    }
+
+    // remove the event in slot i, its handle, if any, is left alone
+    private void removeSlot( int i ) {
+	size = size - 1;
+	if (i < size) { // the hole left at i must be filled by the last event
+	    long t = times[size];
+	    long s = seqs[size];
+	    long p = payloads[size];
+	    int lh = handles[size];
+	    if (siftDown( i, t, s, p, lh ) == i) siftUp( i, t, s, p, lh );
+	}
+    }
+
+    // make room for one more event
+    private void grow() {
+	if (size == times.length) {
+	    times = Arrays.copyOf( times, size * 2 );
+	    seqs = Arrays.copyOf( seqs, size * 2 );
+	    payloads = Arrays.copyOf( payloads, size * 2 );
+	    handles = Arrays.copyOf( handles, size * 2 );
+	}
+    }
+
+    // put an event in slot i, recording its slot if it has a handle
+    private void put( int i, long t, long s, long p, int h ) {
+	times[i] = t;
+	seqs[i] = s;
+	payloads[i] = p;
+	handles[i] = h;
+	if (h >= 0) slots[h] = i;
+    }
+
+    // move an event up from slot i until its parent is no later than it is
+    // returns the slot where it ended up
+    private int siftUp( int i, long t, long s, long p, int h ) {
+	while (i > 0) {
+	    int parent = (i - 1) >>> 1;
+	    if (!(t < times[parent])) break;
+	    put( i, times[parent], seqs[parent], payloads[parent],
+		 handles[parent] );
+	    i = parent;
+	}
+	put( i, t, s, p, h );
+	return i;
+    }
+
+    // move an event down from slot i until neither child is earlier
+    // returns the slot where it ended up
+    private int siftDown( int i, long t, long s, long p, int h ) {
+	int half = size >>> 1; // slots at or above half are leaves
+	while (i < half) {
+	    int child = (2 * i) + 1;
+	    int right = child + 1;
+	    if ((right < size) && (times[right] < times[child])) child = right;
+	    if (!(times[child] < t)) break;
+	    put( i, times[child], seqs[child], payloads[child],
+		 handles[child] );
+	    i = child;
+	}
+	put( i, t, s, p, h );
+	return i;
+    }
+}
@@ -0,0 +1,108 @@
+// Parallel.java
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/** Jobs split into parts, with the parts spread across threads.
+ *  <p>This is only used to build the model, before simulation begins.
+ *  Each part of a job must touch only its own data and, if it needs random
+ *  numbers, it must draw them from its own stream, keyed by the part, see
+ *  <code>MyRandom.substream</code>.  The result is then the same however
+ *  many threads there are; they only decide how soon the job is done.
+ *  @author agent
+ *  @version Oct. 16, 2026 build the model on many threads
+ *  @see MyRandom
+ *  @see Role
+ *  @see PlaceKind
+ */
+class Parallel {
+
+    /** The usual number of items in one part of a job.
+     *  <p>This must not depend on the number of threads.
+     */
+    static final int chunk = 1 << 16;
+
+    // how many threads share each job, counting the one that started it
+    private static int threads = Runtime.getRuntime().availableProcessors();
+
+    /** The work done on one part of a job.
+     */
+    public interface Part {
+	/** Do this part.
+	 *  @param i  the number of the part
+	 */
+	void run( int i );
+    }
+
+    /** Set how many threads share each job.
+     *  <p>By default, there is one thread for each processor.
+     *  @param n  the number of threads, at least one
+     */
+    public static void useThreads( int n ) {
+	threads = n;
+    }
+
+    /** How many parts of <code>chunk</code> items does a job need?
+     *  @param n  the number of items
+     *  @return the number of parts
+     */
+    static int chunks( int n ) {
+	return (int)(((long)n + chunk - 1) / chunk);
+    }
+
+    /** Where does a part of <code>chunk</code> items end?
+     *  @param c  the number of the part, which starts at item c*chunk
+     *  @param n  the number of items in the whole job
+     *  @return the number of the item just after the part
+     */
+    static int chunkEnd( int c, int n ) {
+	final int from = c * chunk;
+	return from + Math.min( n - from, chunk );
+    }
+
+    /** Do all the parts of a job, and wait until they are done.
+     *  <p>The parts may be done in any order, some at the same time.
+     *  @param n  the number of parts, numbered from zero up
+     *  @param part  the work to do for each part
+     */
+    public static void forEach( int n, Part part ) {
+	final int t = Math.min( threads, n );
+	if (t <= 1) { // no need for more threads
+	    for (int i = 0; i < n; i++) part.run( i );
+	    return;
+	}
+
+	// each thread, including this one, takes the next part until none left
+	final AtomicInteger next = new AtomicInteger( 0 );
+	final AtomicReference<Throwable> failure = new AtomicReference<>();
+	final Runnable worker = ()-> {
+	    try {
+		for (int i = next.getAndIncrement(); i < n;
+		     i = next.getAndIncrement()) {
+		    part.run( i );
+		}
+	    } catch ( Throwable e ) {
+		failure.compareAndSet( null, e );
+		next.set( n ); // stop the others soon
+	    }
+	};
+	final Thread[] helpers = new Thread[t - 1];
+	for (int h = 0; h < helpers.length; h++) {
+	    helpers[h] = new Thread( worker );
+	    helpers[h].start();
+	}
+	worker.run();
+	for (Thread h: helpers) {
+	    try {
+		h.join();
+	    } catch ( InterruptedException e ) {
+		Error.fatal( "interrupted building the model" );
+	    }
+	}
+
+	// pass on any failure, as if this thread had done all the work
+	final Throwable e = failure.get();
+	if (e instanceof RuntimeException) throw (RuntimeException)e;
+	if (e instanceof java.lang.Error) throw (java.lang.Error)e;
+    }
+}
@@ -1,16 +1,27 @@
 // Person.java
 
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.TreeSet;
 import java.lang.Double;
 
 /** People are the central actors in the simulation.
+ *  <p>There are no person objects.  Each person is just a number, and all
+ *  that is known about people is kept in columns indexed by that number,
+ *  a few bytes per person, so this class is a set of static methods that
+ *  operate on person numbers.  The columns may be kept off the Java heap,
+ *  see <code>Store</code>.
+ *  <p>Under lazy mobility, people whose every trip is certain are not moved
+ *  from place to place.  Where they are is a pure function of the time of
+ *  day, so places know who is there from daily timelines.  Such people are
+ *  tracked, moving like anyone else, only while they are contageous.
  *  @author Douglas W. Jones -- from distributed solution to MP11
  *  @author Jackson Kopesky -- see comments on methods
  *  @author Leon Deng
- *  @version Apr. 26, 2021 cleaner code for population statistics
+ *  @version Oct. 16, 2026 places are numbers, link starts computed
  *  @see Role for the roles people play
  *  @see Place for the places people visit
  *  @see MyRandom for the source of randomness
+ *  @see Store for where people are kept
  */
 public class Person {
 
@@ -27,6 +38,7 @@ public class Person {
 
 	int pop = 0; // each disease state has a population
     }
+    private static final DiseaseStates[] states = DiseaseStates.values();
 
     // timing characteristics of disease state
     private static InfectionRule latent;
@@ -34,8 +46,21 @@ public class Person {
     private static InfectionRule symptomatic;
     private static InfectionRule bedridden;
 
+    // codes for the events people schedule, see dispatch()
+    private static final int contageousCode = 1;
+    private static final int feelSickCode = 2;
+    private static final int goToBedCode = 3;
+    private static final int recoverCode = 4;
+    private static final int dieCode = 5;
+    private static final int goHomeCode = 6;
+    private static final int infectCode = 7;
+    static final int placeInfectCode = 8; // the subject is a place
+    static final int comeHomeCode = 9; // the subject is a cohort, see Schedule
+
     /** Set the disease parameters for the disease states.
      *  <p>This must be called once before simulation starts.
+     *  It also makes class <code>Person</code> the dispatcher for coded
+     *  events.
      *  @param l   the infection rule for disease latency
      *  @param a   the infection rule for the asymptomatic phase
      *  @param s   the infection rule for the symptomatic phase
@@ -48,85 +73,336 @@ public class Person {
 	asymptomatic = a;
 	symptomatic = s;
 	bedridden = b;
+
+	Simulator.setDispatcher(
+	    (long t, int c, int id)-> Person.dispatch( t, c, id )
+	);
     }
 
-    // linkage from person to place involves a schedule
-    private class PlaceSchedule {
-	public Place place;
-	public Schedule schedule;
-	public PlaceSchedule( Place p, Schedule s ) {
-	    place = p;
-	    schedule = s;
+    /** Dispatch a coded event to the person it concerns.
+     *  <p>This is the dispatcher for all of the coded events in the model,
+     *  so its switch is the only place these event codes are decoded.
+     *  @param time  the time of the event, in ticks
+     *  @param code  the event code
+     *  @param p     the number of the person, place or cohort concerned
+     */
+    private static void dispatch( long time, int code, int p ) {
+	switch (code) {
+	case contageousCode:  beContageous( p, time ); break;
+	case feelSickCode:    feelSick( p, time );     break;
+	case goToBedCode:     goToBed( p, time );      break;
+	case recoverCode:     recover( p, time );      break;
+	case dieCode:         die( p, time );          break;
+	case goHomeCode:      goHome( p, time );       break;
+	case infectCode:      infect( p, time );       break;
+	case placeInfectCode: Place.infectOccupant( time, p ); break; // a place
+	case comeHomeCode:    Schedule.comeHome( time, p );    break; // cohort
+	default: assert false: "undefined event code";
 	}
     }
 
-    // instance variables created from model description
-    private final Role role;      // role of this person
-    private Place home;           // this person's home place, set by emplace
-    private final LinkedList<PlaceSchedule> places = new LinkedList<>();
-
-    // instance variables that change as simulation progressses
-    private DiseaseStates diseaseState = DiseaseStates.uninfected;
-    private Place location;	       // initialized by emplace
-    private Simulator.Event happening = null; //current infection
-	// for the above, the default 0.0 allows for infection at startup
+    // the population, one entry per person in each column, people numbered
+    // from zero in order of creation; see Store for where columns are kept
+    private static int count = 0;   // how many people
+    private static final Store.Bytes diseaseState = new Store.Bytes();
+				// ordinal of state
+    private static final Store.Shorts role = new Store.Shorts();
+				// number of role
+    private static final Store.Ints home = new Store.Ints();
+				// home place, set by emplace
+
+    // linkage from person to place involves a schedule; these are compressed
+    // sparse rows, each person's links are those from their firstLink up
+    // to the next person's, in the order they were emplaced, and each
+    // person has one link for each place their role visits, see Role
+    private static int linkCount = 0; // how many links
+    private static final Store.Ints linkPlace = new Store.Ints();
+				// place number, -1 until emplaced
+    private static final Store.Shorts linkSchedule = new Store.Shorts();
+				// schedule number
+
+    // each call to make adds a block of people who all have the same
+    // number of links, so where each person's links start is computed,
+    // not kept; block k starts with person blockPerson[k], whose first
+    // link is blockLink[k], and each of its people has blockLinks[k]
+    private static int blocks = 0; // how many blocks
+    private static int[] blockPerson = new int[4];
+    private static int[] blockLink = new int[4];
+    private static int[] blockLinks = new int[4];
+
+    // more of the population, varying as simulation progresses
+    private static final Store.Ints location = new Store.Ints();
+				// -1 if not tracked or dead, else place number
+    private static final Store.Ints happening = new Store.Ints();
+				// handle on current infection, -1 if none
+    static final Store.Ints occupantSlot = new Store.Ints();
+				// where in location's occupants, see Place
+    static final Store.Ints prevSusceptible = new Store.Ints();
+    static final Store.Ints nextSusceptible = new Store.Ints();
+				// links among susceptible occupants, see Place
 
     // static variables used for all people
-    private static LinkedList<Person> allPeople = new LinkedList<Person>();
     private static MyRandom rand = MyRandom.stream;
+    private static boolean lazyMobility = false; // see useLazyMobility
 
-    /** Construct a new person to perform some role
-     *  <p>This constructor deliberately defers putting people in any places.
-     *  For each constructed person <code>p</code>, a call must be made to
-     *  <code>p.emplace(place,schedule)</code> before simulation begins.
-     *  The separation between constructing people and emplacing them allows
+    /** Use lazy mobility.
+     *  <p>This must be called, if at all, before anyone is made.
+     *  Only people in roles where every trip is certain are affected.
+     *  @see Role#isDeterministic
+     */
+    public static void useLazyMobility() {
+	lazyMobility = true;
+    }
+
+    /** Make room for more people.
+     *  <p>This need not be called, but when the population is known in
+     *  advance, it sizes the columns exactly, once, instead of growing them
+     *  each time people are made.
+     *  @param n  how many people there will be in all
+     *  @param links  how many links to places they will have in all
+     *  @see Role#visits
+     */
+    public static void reserve( int n, long links ) {
+	if (links > Integer.MAX_VALUE) Error.fatal( "too many links" );
+	if (links > linkPlace.size()) {
+	    linkPlace.grow( (int)links );
+	    linkSchedule.grow( (int)links );
+	}
+	if (n <= diseaseState.size()) return;
+	diseaseState.grow( n );
+	role.grow( n );
+	home.grow( n );
+	location.grow( n );
+	happening.grow( n );
+	occupantSlot.grow( n );
+	prevSusceptible.grow( n );
+	nextSusceptible.grow( n );
+    }
+
+    /** Make new people to perform some role
+     *  <p>This deliberately defers putting people in any places.
+     *  For each person <code>p</code> made, a call must be made to
+     *  <code>emplace(p,place,schedule)</code> before simulation begins.
+     *  The separation between making people and emplacing them allows
      *  for shuffling the set of people in order to randomize the places into
      *  which they fall.
-     *  @param r  the role of this person
+     *  <p>The work of making many people is spread across threads.
+     *  @param r  the role of these people
+     *  @param n  how many people to make
+     *  @return the number of the first new person, the rest follow in order
+     *  @see Parallel
      */
-    public Person( Role r ) {
-	role = r;
+    public static int make( Role r, int n ) {
+	final int first = count; // number people in order of creation
+	final int visits = r.visits();
+	final int firstLinks = linkCount; // the first new person's first link
+	final long links = firstLinks + ((long)n * visits);
+	reserve( first + n, links ); // if not reserved already
+
+	// these people are the next block
+	if (blocks == blockPerson.length) {
+	    blockPerson = Arrays.copyOf( blockPerson, blocks * 2 );
+	    blockLink = Arrays.copyOf( blockLink, blocks * 2 );
+	    blockLinks = Arrays.copyOf( blockLinks, blocks * 2 );
+	}
+	blockPerson[blocks] = first;
+	blockLink[blocks] = firstLinks;
+	blockLinks[blocks] = visits;
+	blocks = blocks + 1;
+
+	Parallel.forEach( Parallel.chunks( n ), (int c)-> {
+	    final int from = first + (c * Parallel.chunk);
+	    final int to = first + Parallel.chunkEnd( c, n );
+	    for (int p = from; p < to; p++) {
+		diseaseState.set( p, (byte)DiseaseStates.uninfected.ordinal() );
+		role.set( p, r.id );
+		home.set( p, -1 );
+		final int last = firstLinks + ((p - first + 1) * visits);
+		for (int i = last - visits; i < last; i++) {
+		    linkPlace.set( i, -1 ); // not yet emplaced
+		}
+		location.set( p, -1 );
+		happening.set( p, -1 );
+		occupantSlot.set( p, -1 );
+		prevSusceptible.set( p, -1 );
+		nextSusceptible.set( p, -1 );
+	    }
+	} );
 
-	allPeople.add( this ); // include this person in the list of all
+	count = first + n;
+	linkCount = (int)links;
+	DiseaseStates.uninfected.pop += n; // keep the population statistics
+	return first;
+    }
 
-	diseaseState.pop ++;   // keep the population statistics up to date
-    };
+    /** How many people are there?
+     *  @return the number of people, who are numbered from zero up
+     */
+    public static int count() {
+	return count;
+    }
+
+    // is this person untracked unless contageous, see above
+    private static boolean isLazy( int p ) {
+	return lazyMobility && Role.get( role.get( p ) ).isDeterministic();
+    }
+
+    // move this person to a new disease state, keeping statistics
+    private static void setState( int p, DiseaseStates s ) {
+	states[diseaseState.get( p )].pop--;
+	diseaseState.set( p, (byte)s.ordinal() );
+	s.pop++;
+    }
+
+    // where a person's links start, see above; for the person after the
+    // last, where the last person's links end
+    private static int firstLink( int p ) {
+	if (p >= count) return linkCount;
+	int lo = 0;
+	int hi = blocks - 1;
+	while (lo < hi) { // binary search, blockPerson[lo] <= p
+	    final int mid = (lo + hi + 1) >>> 1;
+	    if (blockPerson[mid] <= p) {
+		lo = mid;
+	    } else {
+		hi = mid - 1;
+	    }
+	}
+	return blockLink[lo] + ((p - blockPerson[lo]) * blockLinks[lo]);
+    }
+
+    // the place and the schedule of a link, see above
+    private static int placeOf( int link ) {
+	return linkPlace.get( link );
+    }
+    private static Schedule scheduleOf( int link ) {
+	return Schedule.get( linkSchedule.get( link ) );
+    }
 
     // methods used during model construction, at time 0.0
 
-    /** Associate this person with a particular place and schedule.
+    /** Associate a person with a particular place and schedule.
      *  <p>Each person must be emplaced before simulation begins.
      *  Emplacing a pereson commits that person to visiting the place
      *  according to the given schedule, and it also places the person
      *  in a home place identified by a null schedule.
-     *  @param p  the place
+     *  @param p  the person
+     *  @param place  the number of the place
      *  @param s  the associated schedule
      */
-    public void emplace( Place p, Schedule s ) {
+    public static void emplace( int p, int place, Schedule s ) {
 	if (s != null) {
-	    places.add( new PlaceSchedule( p, s ) );
-	    s.apply( this, p ); // commit to following schedule s for place p
+	    int i = firstLink( p ); // this person's first unused link
+	    while (linkPlace.get( i ) >= 0) i = i + 1;
+	    assert i < firstLink( p + 1 ): "Role guarantees enough links";
+	    linkPlace.set( i, place );
+	    linkSchedule.set( i, s.id );
+	    if (isLazy( p )) { // the place knows when to expect me
+		Place.addToTimeline( place, p );
+	    } else { // commit to following schedule s for this place
+		s.apply( p, place );
+	    }
 	} else {
-	    assert home == null: "Role guarantees only one home place";
-	    home = p;
-	    location = home;
+	    assert home.get( p ) == -1: "Role guarantees only one home place";
+	    home.set( p, place );
+	    if (isLazy( p )) {
+		Place.addToTimeline( place, p );
+	    } else {
+		location.set( p, place ); // tell location about new occupant
+		Place.arrive( place, 0.0, p );
+	    }
+	}
+    }
+
+    /** Where would a person be at some time, if they stuck to schedule?
+     *  @param p  the person
+     *  @param time  the time, in ticks
+     *  @return the number of the place
+     */
+    static int whereAt( int p, long time ) {
+	final int last = firstLink( p + 1 );
+	for (int i = firstLink( p ); i < last; i++) {
+	    if (scheduleOf( i ).covers( time )) return placeOf( i );
+	}
+	return home.get( p );
+    }
+
+    /** Add the times of day at which a person's schedules take them
+     *  somewhere or bring them home.
+     *  @param p  the person
+     *  @param times  the set of times, in ticks after midnight, to add to
+     */
+    static void addTimesOfDay( int p, TreeSet<Long> times ) {
+	final int last = firstLink( p + 1 );
+	for (int i = firstLink( p ); i < last; i++) {
+	    scheduleOf( i ).addTimesOfDay( times );
+	}
+    }
 
-	    location.arrive( 0.0, this ); // tell location about new occupant
+    // start tracking a lazy person, who goes where they should be now and
+    // then follows their schedules like anyone else
+    private static void track( int p, long time ) {
+	final int here = whereAt( p, time );
+	location.set( p, here );
+	Place.arrive( here, Time.toSeconds( time ), p );
+	final int last = firstLink( p + 1 );
+	for (int i = firstLink( p ); i < last; i++) {
+	    final Schedule s = scheduleOf( i );
+	    final int place = placeOf( i );
+	    s.apply( p, place, time );
+	    if (here == place) {
+		scheduleGoHome( p, s.endOfVisit( time ) );
+	    }
 	}
     }
 
+    // stop all of a person's trips for good, once they have left their
+    // location; this is how lazy people stop being tracked, and the dead;
+    // their cohorts drop them, see Schedule, and trips home are ignored
+    private static void untrack( int p ) {
+	location.set( p, -1 );
+    }
+
     // state query
 
-    /** Is this person contageous?
+    /** Is a person contageous?
      *  <p>A person is defined as being contageous if they are in any disease
      *  state between <code>asymptomatic</code> and <code>bedridden</code>
      *  inclusive.
+     *  @param p  the person
      *  @return true if they are
      */
-    public boolean isContageous() {
+    public static boolean isContageous( int p ) {
 	return
-	    (diseaseState.compareTo( DiseaseStates.asymptomatic ) >= 0)
-	 && (diseaseState.compareTo( DiseaseStates.bedridden ) <= 0);
+	    (diseaseState.get( p ) >= DiseaseStates.asymptomatic.ordinal())
+	 && (diseaseState.get( p ) <= DiseaseStates.bedridden.ordinal());
+    }
+
+    /** Could a person be infected?
+     *  <p>Only <code>uninfected</code> people can be infected.
+     *  @param p  the person
+     *  @return true if they could
+     */
+    public static boolean isSusceptible( int p ) {
+	return diseaseState.get( p ) == DiseaseStates.uninfected.ordinal();
+    }
+
+    /** Is a person tracked, with a location?
+     *  <p>Under lazy mobility, many people are not; the dead never are.
+     *  @param p  the person
+     *  @return true if they are
+     */
+    static boolean isTracked( int p ) {
+	return location.get( p ) >= 0;
+    }
+
+    /** Is a person bedridden?
+     *  <p>Bedridden people never leave home.
+     *  @param p  the person
+     *  @return true if they are
+     */
+    static boolean isBedridden( int p ) {
+	return diseaseState.get( p ) == DiseaseStates.bedridden.ordinal();
     }
 
     // simulation of behavior
@@ -136,181 +412,228 @@ public class Person {
      *  previously scheduled to be infected at a different time.
      *  The actual delay until infection is randomized based on the mean
      *  delay provided.
+     *  @param p  the person
      *  @param time  the current time
      *  @param meanDelay  the mean delay until infection
      *  @author Jackson Kopesky -- modified to enable
      *  event rescheduling/cancellation
      */
-    public void scheduleInfect( double time, double meanDelay ) {
-	if (diseaseState == DiseaseStates.uninfected) { // irrelevant if not
+    public static void scheduleInfect( int p, double time, double meanDelay ) {
+	if (isSusceptible( p )) { // irrelevant if not
 	    double delay = rand.nextExponential( meanDelay );
-	    double goTime = time + delay;
-	    if (happening == null){ //new event
-	    	happening = Simulator.schedule( goTime, (double t)-> infect( t ) ); //schedule it
+	    long goTime = Time.toTicks( time + delay );
+	    if (happening.get( p ) == -1){ //new event
+		if (goTime != Time.never) { //unless it would never happen
+		    happening.set( p, Simulator.scheduleCancellable(
+			goTime, infectCode, p
+		    ) ); //schedule it
+		}
 	    } else if (Double.isInfinite(delay) || Double.isNaN(delay)) { //invalid event
-	        Simulator.cancel(happening); //cancel it
-	        happening = null;
+	        Simulator.cancel(happening.get( p )); //cancel it
+	        happening.set( p, -1 );
 	    } else {
-	        Simulator.reschedule( happening, goTime);
+	        Simulator.reschedule( happening.get( p ), goTime);
 	    }
 	}
     }
 
-    /** Infect this person.
+    /** Cancel any infection scheduled for a person.
+     *  @param p  the person
+     */
+    public static void cancelInfect( int p ) {
+	if (happening.get( p ) != -1) {
+	    Simulator.cancel( happening.get( p ) );
+	    happening.set( p, -1 );
+	}
+    }
+
+    /** Infect a person.
      *  <p>This is a schedulable event service routine.
      *  <p>This may be called on a person in any infection state but it only
      *  moves the person to <code>latent</code> if they are currently.
      *  <code>uninfected</code>.  
-     *  @param time the time of infection
+     *  @param p  the person
+     *  @param time the time of infection, in ticks
      *  @author Jackson Kopesky -- removed chekc for infectMeTime
      */
-    public void infect( double time ) {
-	if (diseaseState == DiseaseStates.uninfected) { // no reinfection
-	    final double duration = latent.duration();
+    public static void infect( int p, long time ) {
+	happening.set( p, -1 ); // the handle is no longer valid, if it ever was
+	if (isSusceptible( p )) { // no reinfection
+	    final long duration = latent.duration();
 
 	    // update population statistics
-	    diseaseState.pop--;
-	    diseaseState = DiseaseStates.latent;
-	    diseaseState.pop++;
+	    setState( p, DiseaseStates.latent );
+
+	    // tell place that I can no longer be infected
+	    if (location.get( p ) >= 0) {
+		Place.infected( location.get( p ), Time.toSeconds( time ), p );
+	    } else if (isLazy( p ) && (home.get( p ) >= 0)) { // all my places
+		Place.infectedOffTimeline( home.get( p ), time, p );
+		final int last = firstLink( p + 1 );
+		for (int i = firstLink( p ); i < last; i++) {
+		    Place.infectedOffTimeline( placeOf( i ), time, p );
+		}
+	    }
 
 	    if (latent.recover()) {
-		Simulator.schedule( time + duration, (double t)->recover( t ) );
+		Simulator.schedule( time + duration, recoverCode, p );
 	    } else {
-		Simulator.schedule(
-		    time + duration, (double t)-> beContageous( t )
-		);
+		Simulator.schedule( time + duration, contageousCode, p );
 	    }
 	}
     }
 
-    /** This person becomes contageous and asymptomatic.
+    /** A person becomes contageous and asymptomatic.
      *  <p>This is a schedulable event service routine.
      *  <p>This may only be called on a person in with a <code>latent</code>
      *  infection and makes the person <code>asymptomatic</code>.
-     *  @param time   the time of this state change
+     *  @param p  the person
+     *  @param time   the time of this state change, in ticks
      */
-    public void beContageous( double time ) {
-	assert diseaseState == DiseaseStates.latent : "not latent";
-	final double duration = asymptomatic.duration();
+    public static void beContageous( int p, long time ) {
+	assert states[diseaseState.get( p )] == DiseaseStates.latent
+	    : "not latent";
+	final long duration = asymptomatic.duration();
 
 	// update population statistics
-	diseaseState.pop--;
-	diseaseState = DiseaseStates.asymptomatic;
-	diseaseState.pop++;
+	setState( p, DiseaseStates.asymptomatic );
 
 	// tell place that I'm sick
-	if (location != null) location.contageous( time, +1 );
+	if (location.get( p ) >= 0) {
+	    Place.contageous( location.get( p ), Time.toSeconds( time ), +1 );
+	} else if (isLazy( p )) { // my arrival there tells it
+	    track( p, time );
+	}
 
 	if (asymptomatic.recover()) {
-	    Simulator.schedule( time + duration, (double t)-> recover( t ) );
+	    Simulator.schedule( time + duration, recoverCode, p );
 	} else {
-	    Simulator.schedule( time + duration, (double t)-> feelSick( t ) );
+	    Simulator.schedule( time + duration, feelSickCode, p );
 	}
     }
 
-    /** This person is contageous and starts feeling sick.
+    /** A person is contageous and starts feeling sick.
      *  <p>This is a schedulable event service routine.
      *  <p>This may only be called on a person in with an
      *  <code>asymptomatic</code> infection and makes them
      *  <code>symptomatic</code>.
      *  makes the person symptomatic.
-     *  @param time  the time of this state change
+     *  @param p  the person
+     *  @param time  the time of this state change, in ticks
      */
-    public void feelSick( double time ) {
-	assert diseaseState == DiseaseStates.asymptomatic: "not asymptomatic";
-	final double duration = symptomatic.duration();
+    public static void feelSick( int p, long time ) {
+	assert states[diseaseState.get( p )] == DiseaseStates.asymptomatic
+	    : "not asymptomatic";
+	final long duration = symptomatic.duration();
 
 	// update population statistics
-	diseaseState.pop--;
-	diseaseState = DiseaseStates.symptomatic;
-	diseaseState.pop++;
+	setState( p, DiseaseStates.symptomatic );
 
 	if (symptomatic.recover()) {
-	    Simulator.schedule( time + duration, (double t)-> recover( t ) );
+	    Simulator.schedule( time + duration, recoverCode, p );
 	} else {
-	    Simulator.schedule( time + duration, (double t)-> goToBed( t ) );
+	    Simulator.schedule( time + duration, goToBedCode, p );
 	}
     }
 
-    /** This person is contageous and feels so bad they go to bed.
+    /** A person is contageous and feels so bad they go to bed.
      *  <p>This is a schedulable event service routine
      *  <p>This may only be called on a person in with a
      *  <code>symptomatic</code> infection and makes the person
      *  <code>bedridden</code>.
-     *  @param time  the time of this state change
+     *  @param p  the person
+     *  @param time  the time of this state change, in ticks
      */
-    public void goToBed( double time ) {
-	assert diseaseState == DiseaseStates.symptomatic: "not symptomatic";
-	final double duration = bedridden.duration();
+    public static void goToBed( int p, long time ) {
+	assert states[diseaseState.get( p )] == DiseaseStates.symptomatic
+	    : "not symptomatic";
+	final long duration = bedridden.duration();
 
 	// update population statistics
-	diseaseState.pop--;
-	diseaseState = DiseaseStates.bedridden;
-	diseaseState.pop++;
+	setState( p, DiseaseStates.bedridden );
 
 	if (symptomatic.recover()) {
-	    Simulator.schedule( time + duration, (double t)-> recover( t ) );
+	    Simulator.schedule( time + duration, recoverCode, p );
 	} else {
-	    Simulator.schedule( time + duration, (double t)-> die( t ) );
+	    Simulator.schedule( time + duration, dieCode, p );
 	}
     }
 
-    /** This person gets better.
+    /** A person gets better.
      *  <p>This is a schedulable event service routine.
      *  <p>This may be called on a person in any disease state
      *  and leaves the person <code>recovered</code>
      *  and immune from further infection.
-     *  @param time   the time of this state change
+     *  @param p  the person
+     *  @param time   the time of this state change, in ticks
      */
-    public void recover( double time ) {
+    public static void recover( int p, long time ) {
 	// update population statistics
-	diseaseState.pop--;
-	diseaseState = DiseaseStates.recovered;
-	diseaseState.pop++;
-
-	if (location != null) location.contageous( time, -1 );
+	setState( p, DiseaseStates.recovered );
+
+	if (location.get( p ) >= 0) {
+	    final int here = location.get( p );
+	    Place.contageous( here, Time.toSeconds( time ), -1 );
+	    if (isLazy( p )) {
+		Place.depart( here, Time.toSeconds( time ), p );
+		untrack( p );
+	    }
+	}
     }
 
-    /** This person dies
+    /** A person dies
      *  <p>This is a schedulable event service routine.
      *  <p>This may only be called only on a person who is already
      *  <code>bedridden</code>, and it makes that person <code>dead</code>.
-     *  @param time  the time of this state change
+     *  @param p  the person
+     *  @param time  the time of this state change, in ticks
      */
-    public void die( double time ) {
-	assert diseaseState == DiseaseStates.bedridden: "not bedridden";
+    public static void die( int p, long time ) {
+	assert isBedridden( p ): "not bedridden";
 	// update population statistics
-	diseaseState.pop--;
-	diseaseState = DiseaseStates.dead;
-	diseaseState.pop++;
+	setState( p, DiseaseStates.dead );
 
-	if (location != null) {
-	    location.depart( time, this );
+	if (location.get( p ) >= 0) {
+	    Place.depart( location.get( p ), Time.toSeconds( time ), p );
+	    untrack( p ); // the dead go nowhere
 	}
 
 	// no new event is scheduled.
     }
 
-    /** Tell this person to go home at this time
+    /** Schedule a person to go home at some later time.
+     *  @param p  the person
+     *  @param time  when the person should go home, in ticks
+     */
+    public static void scheduleGoHome( int p, long time ) {
+	Simulator.schedule( time, goHomeCode, p );
+    }
+
+    /** Tell a person to go home at this time
      *  <p>This is a schedulable event service routine.
-     *  @param time of the move
+     *  @param p  the person
+     *  @param time of the move, in ticks
      */
-    public void goHome( double time ) {
-	travelTo( time, home );
+    public static void goHome( int p, long time ) {
+	if (home.get( p ) < 0) return; // nowhere to go
+	travelTo( p, Time.toSeconds( time ), home.get( p ) );
     }
 
-    /** Tell this person to go somewhere
+    /** Tell a person to go somewhere
      *  <p>This is a schedulable event service routine.
      *  <p>Note that this enforces the rule that <code>bedridden</code>
-     *  people never leave home.
+     *  people never leave home.  People who are not tracked, including
+     *  the dead, go nowhere.
+     *  @param p  the person
      *  @param time  when the person goes there
-     *  @param place  where the person goes
+     *  @param place  the number of the place the person goes to
      */
-    public void travelTo( double time, Place place ) {
-	if ((diseaseState != DiseaseStates.bedridden) || (place == home)) {
-	    location.depart( time, this );
-	    location = place;
-	    location.arrive( time, this );
+    public static void travelTo( int p, double time, int place ) {
+	if (location.get( p ) < 0) return; // not tracked, or dead
+	if (!isBedridden( p ) || (place == home.get( p ))) {
+	    Place.depart( location.get( p ), time, p );
+	    location.set( p, place );
+	    Place.arrive( place, time, p );
 	}
     }
 
@@ -335,12 +658,14 @@ public class Person {
 	    }
 	    System.out.println();
 	}
-	// schedule the first report
-	Simulator.schedule( 0.0, (double t)-> Person.report( t ) );
+	// schedule the daily reports
+	Simulator.schedulePeriodic( 0.0, Time.day,
+	    (double t)-> Person.report( t )
+	);
     }
 
     /** Report population statistics at the given time.
-     *  <p>This is a schedulable event service routine.
+     *  <p>This is a schedulable event service routine, triggered daily.
      *  <p>Each report is a CSV line sent to <code>system.out</code>
      *  (aka <code>stdout</code>) giving the time and the
      *  population statistics for each disease state.
@@ -353,11 +678,6 @@ public class Person {
 	    System.out.print( Integer.toString( s.pop ) );
 	}
 	System.out.println();
-
-	// schedule the next report
-	Simulator.schedule( time + 24*Time.hour,
-	    (double t)-> Person.report( t )
-	);
     }
 
     /** Print out the entire population.
@@ -365,26 +685,27 @@ public class Person {
      *  and obviously useless for large populations.
      */
     public static void printAll() {
-	for (Person p: allPeople) {
-	    // line 1: person id and role
-	    System.out.print( p.toString() );
+	for (int p = 0; p < count; p++) {
+	    // line 1: person number and role
+	    System.out.print( "Person@" + p );
 	    System.out.print( " " );
-	    System.out.println( p.role.name );
+	    System.out.println( Role.get( role.get( p ) ).name );
 
 	    // line 2 the home
+	    final int h = home.get( p );
 	    System.out.print( " " ); // indent following lines
-	    System.out.print( p.home.kind.name );
+	    System.out.print( Place.kindOf( h ).name );
 	    System.out.print( " " );
-	    System.out.print( p.home.toString() );
+	    System.out.print( "Place@" + h );
 	    System.out.println();
 	    // lines 3 and up: each place and its schedule
-	    for (PlaceSchedule ps: p.places ) {
+	    final int last = firstLink( p + 1 );
+	    for (int i = firstLink( p ); i < last; i++) {
 		System.out.print( " " ); // indent following lines
-		System.out.print( ps.place.kind.name );
+		System.out.print( Place.kindOf( placeOf( i ) ).name );
 		System.out.print( " " );
-		System.out.print( ps.place.toString() );
-		assert ps.schedule != null: "guaranteed by PlaceKind";
-		System.out.print( ps.schedule.toString() );
+		System.out.print( "Place@" + placeOf( i ) );
+		System.out.print( scheduleOf( i ).toString() );
 		System.out.println();
 	    }
 	}
@@ -1,75 +1,869 @@
 // Place.java
 
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.TreeSet;
 
 /** Places that people are associate with and may occupy.
  *  <p>Every place is an instance of some <code>PlaceKind</code>.
+ *  <p>There are no place objects.  As with people, each place is just a
+ *  number, and all that is known about places is kept in columns indexed
+ *  by that number, so this class is a set of static methods that operate
+ *  on place numbers.
+ *  <p>There are three infection engines.  By default, each person in a
+ *  place is scheduled to be infected whenever the number of contageous
+ *  people there changes.  Alternatively, each place can have just one
+ *  pending infection event, the first of the competing risks to its
+ *  susceptible occupants; when that happens, one of them is picked at
+ *  random.  Finally, each person can draw, once, how much exposure it
+ *  takes to infect them, with each place accumulating the exposure of its
+ *  occupants and scheduling an event only for the first that could cross
+ *  that threshold.
+ *  <p>In any case, many people may come and go at the same instant, so
+ *  places only note that they have changed and rework their infection
+ *  schedules once, after everything else at that instant is done.
+ *  <p>Big places may, instead, use tau leaping, an approximation.  Each
+ *  leap covers a span of time in which the number of contageous and
+ *  susceptible people there does not change; it ends when they change or
+ *  after a short time step.  The number of people infected in that span
+ *  is drawn from a binomial distribution and that many susceptibles are
+ *  picked at random and infected at the end of the span.  The steps are
+ *  short enough that few are infected in each.
+ *  <p>Finally, places big enough may be treated as well mixed.  They only
+ *  count their susceptible and contageous occupants and, whatever the
+ *  engine, they have one infection event for the aggregate hazard.  When
+ *  it happens, they pick occupants at random until they find one who can
+ *  be infected.
+ *  <p>Under lazy mobility, people who are not tracked never arrive or
+ *  depart.  Instead, each place has a daily timeline of who should be
+ *  there, divided into phases by the times its people come and go, and
+ *  it counts those who are still susceptible in each phase.  They share
+ *  the place's infection event with its real occupants; only while there
+ *  are contageous people there must it also wake up at each new phase.
+ *  <p>All of the state of places that varies as the simulation runs, and
+ *  their timelines, are kept in columns indexed by place number, see
+ *  <code>Store</code>.  Each place has a run of occupant slots, one for
+ *  each person who could ever be there at once, its capacity.
  *  @author Douglas W. Jones
- *  @version Apr. 13, 2021 improved Javadoc comments
+ *  @version Oct. 16, 2026 place state kept in columns
  *  @see PlaceKind for most of the attributes of places
+ *  @see Store for where the state of places is kept
  */
 public class Place {
 
-    // instance variables fixed at creation
+    // the infection engines
+    private static enum Engine {
+	person, // each occupant has its own infection event
+	place,   // each place has one infection event for all its occupants
+	exposure // each person has a threshold for cumulative exposure
+    }
+    private static Engine engine = Engine.person;
+
+    // static variables used for all places
+    private static int count = 0; // how many places
+    private static MyRandom rand = MyRandom.stream;
+
+    // places changed at this instant that must rework infection schedules
+    private static int[] changedPlaces = new int[16];
+    private static int changedCount = 0;
+
+    // for tau leaping, the limits on each time step; the expected fraction
+    // of the susceptibles infected in one step, and the longest step
+    private static final double leapError = 0.03;
+    private static final double leapLimit = Time.hour;
+    private static int[] victims = new int[16]; // people picked in a leap
+
+    // for the exposure engine, the exposure that infects each person,
+    // indexed by person number, NaN until they are first exposed
+    private static final Store.Doubles threshold = new Store.Doubles();
+
+    // places with at least this capacity are well mixed, see mixAtLeast
+    private static int mixSize = Integer.MAX_VALUE;
+
+    // what is fixed when each place is made, one entry per place in each
+    // column, indexed by place number; the number of its kind, see
+    // PlaceKind, which also says how dangerous it is to stay there, and
+    // whether it uses tau leaping or is treated as well mixed
+    private static final Store.Shorts kind = new Store.Shorts();
+    private static final Store.Bytes flags = new Store.Bytes();
+    private static final byte leapingFlag = 1;
+    private static final byte mixedFlag = 2;
+
+    // the state of places that varies with circumstances, one entry per
+    // place in each column, indexed by place number, see Store for where it
+    // is kept; how many infectious people are here, how many occupants
+    // could be infected and how many occupants there are
+    private static final Store.Ints contageous = new Store.Ints();
+    private static final Store.Ints susceptible = new Store.Ints();
+    private static final Store.Ints occupantCount = new Store.Ints();
+
+    // who is currently in each place, in no particular order; each place
+    // has a run of slots in the occupants column, from its firstSlot up to
+    // the next place's, and each occupant knows its own slot, see Person
+    private static int slotCount = 0; // how many slots
+    private static final Store.Ints firstSlot = new Store.Ints();
+				// one more entry than places
+    private static final Store.Ints occupants = new Store.Ints();
+				// person numbers, indexed by slot
 
-    /** What kind of place is this? */
-    public final PlaceKind kind;
+    // the occupants of each place who could be infected, in order of
+    // arrival; they are linked through their susceptible links, see Person,
+    // and -1 stands for nobody
+    private static final Store.Ints firstSusceptible = new Store.Ints();
+    private static final Store.Ints lastSusceptible = new Store.Ints();
 
-    // how dangerous is it to stay here?
-    private final double transmissivity;
+    // is the place in changedPlaces?  1 if so, else 0
+    private static final Store.Bytes changed = new Store.Bytes();
 
-    // instance variables that vary with circumstances
+    // handle on the next infection at each place, -1 if none, for the place
+    // engine and the exposure engine, or on the next leap, for tau leaping
+    private static final Store.Ints happening = new Store.Ints();
 
-    // how many infectious people are here
-    private int contageous = 0;
+    // is the pending infection event just the start of a new phase?  1 if
+    // so, else 0, for lazy mobility
+    private static final Store.Bytes phaseStarts = new Store.Bytes();
 
-    // who is currently in this place?
-    private final LinkedList<Person> occupants = new LinkedList<>();
+    // for tau leaping, when the current span of time began; this column
+    // stays empty until some place leaps
+    private static final Store.Doubles leapTime = new Store.Doubles();
 
-    /** Construct a new place.
+    // for the exposure engine only, the total exposure of anyone who has
+    // been at each place since the start, as of the given time, and a
+    // lower bound on the exposure at which its next susceptible occupant is
+    // infected; these columns stay empty under the other engines
+    private static final Store.Doubles exposure = new Store.Doubles();
+    private static final Store.Doubles exposureTime = new Store.Doubles();
+    private static final Store.Doubles nextThreshold = new Store.Doubles();
+
+    // for lazy mobility, the daily timelines of the untracked people who
+    // belong in each place; each place's phases are those from its
+    // firstPhase up to the next place's, where each phase has the time of
+    // day at which it starts, in ticks after midnight, and who should be
+    // there, from its firstExpected up to the next phase's, and how many
+    // of them are susceptible; all empty if nobody is untracked
+    private static final Store.Ints firstPhase = new Store.Ints();
+				// one more entry than places
+    private static int phaseCount = 0;
+    private static final Store.Ints phaseStart = new Store.Ints();
+    private static final Store.Ints expectedSusceptible = new Store.Ints();
+    private static final Store.Ints firstExpected = new Store.Ints();
+				// one more entry than phases
+    private static int expectedCount = 0;
+    private static final Store.Ints expected = new Store.Ints();
+				// person numbers
+
+    // for lazy mobility, while timelines are built, who belongs in each
+    // place, in the place's run of slots, and how many; discarded once the
+    // timelines are built
+    private static Store.Ints members = new Store.Ints();
+    private static Store.Ints memberCount = new Store.Ints();
+
+    /** Select the infection engine.
+     *  <p>This must be called, if at all, before any places are made.
+     *  @param name  the name of the engine, <tt>person</tt>, <tt>place</tt>
+     *  or <tt>exposure</tt>
+     *  @return false if there is no such engine
+     */
+    public static boolean useInfectionEngine( String name ) {
+	try {
+	    engine = Engine.valueOf( name );
+	    return true;
+	} catch ( IllegalArgumentException e ) {
+	    return false;
+	}
+    }
+
+    /** Treat all big places as well mixed.
+     *  <p>This must be called, if at all, before any places are made.
+     *  @param size  places with at least this capacity are well mixed
+     */
+    public static void mixAtLeast( int size ) {
+	mixSize = size;
+    }
+
+    /** Make a new place.
      *  @param k  the kind of place
-     *  @param t  the transmissivity of the place
+     *  @param c  the capacity of the place
+     *  @return the number of the new place
+     */
+    static int make( PlaceKind k, int c ) {
+	final boolean mixed = c >= mixSize;
+	final boolean leaping = k.leap && !mixed;
+
+	final int id = count; // number places in order of creation
+
+	// this place's run of occupant slots, enough for its capacity
+	final long slots = (long)slotCount + Math.max( 1, c );
+	if (slots > Integer.MAX_VALUE) Error.fatal( "too many occupants" );
+	if ((id + 1 > contageous.size()) || (slots > occupants.size())) {
+	    reserve( // make room for more places
+		(int)Math.min( Integer.MAX_VALUE - 1, Math.max( 16, id * 2L ) ),
+		Math.max( 16, slots * 2 )
+	    );
+	}
+	firstSlot.set( id + 1, (int)slots );
+	slotCount = (int)slots;
+	count = id + 1;
+
+	kind.set( id, k.id );
+	flags.set( id, (byte)((leaping ? leapingFlag : 0)
+			    | (mixed ? mixedFlag : 0)) );
+	firstSusceptible.set( id, -1 );
+	lastSusceptible.set( id, -1 );
+	happening.set( id, -1 );
+	if (leaping && (id >= leapTime.size())) {
+	    leapTime.grow( contageous.size() );
+	}
+	if (engine == Engine.exposure) {
+	    nextThreshold.set( id, Double.POSITIVE_INFINITY );
+	}
+	return id;
+    }
+
+    /** Make room for more places.
+     *  <p>This need not be called, but when the number of places is known
+     *  in advance, it sizes the columns exactly, once, instead of growing
+     *  them one step at a time.
+     *  @param n  how many places there will be in all
+     *  @param slots  how many occupant slots they will have in all, the
+     *  sum of their capacities
+     */
+    public static void reserve( int n, long slots ) {
+	if (slots > occupants.size()) {
+	    occupants.grow( (int)Math.min( Integer.MAX_VALUE, slots ) );
+	}
+	if (n <= contageous.size()) return;
+	kind.grow( n );
+	flags.grow( n );
+	contageous.grow( n );
+	susceptible.grow( n );
+	occupantCount.grow( n );
+	firstSlot.grow( n + 1 );
+	firstSusceptible.grow( n );
+	lastSusceptible.grow( n );
+	changed.grow( n );
+	happening.grow( n );
+	phaseStarts.grow( n );
+	if (leapTime.size() > 0) leapTime.grow( n ); // some place leaps
+	if (engine == Engine.exposure) {
+	    exposure.grow( n );
+	    exposureTime.grow( n );
+	    nextThreshold.grow( n );
+	}
+    }
+
+    /** How many places are there?
+     *  @return the number of places, which are numbered from zero up
      */
-    public Place( PlaceKind k, Double t ) {
-	kind = k;
-	transmissivity = t;
+    static int count() {
+	return count;
+    }
+
+    /** How many occupant slots do all the places have?
+     *  @return the sum of the capacities of all the places
+     */
+    static int slotCount() {
+	return slotCount;
+    }
+
+    /** What kind of place is this?
+     *  @param id  the number of the place
+     *  @return its kind
+     */
+    static PlaceKind kindOf( int id ) {
+	return PlaceKind.get( kind.get( id ) );
+    }
+
+    // how dangerous is it to stay in a place?
+    private static double transmissivity( int id ) {
+	return PlaceKind.get( kind.get( id ) ).transmissivity();
+    }
+
+    // does a place use tau leaping?
+    private static boolean isLeaping( int id ) {
+	return (flags.get( id ) & leapingFlag) != 0;
+    }
+
+    // is a place treated as well mixed?
+    private static boolean isMixed( int id ) {
+	return (flags.get( id ) & mixedFlag) != 0;
+    }
+
+    /** Put a person who is not tracked on the timeline of a place.
+     *  <p>This must be called, if at all, as people are put in places,
+     *  before <code>buildTimelines</code> is called.
+     *  @param id  the number of the place
+     *  @param p  the person, who must belong here for some part of the day
+     *  @see Person#whereAt
+     */
+    static void addToTimeline( int id, int p ) {
+	if (memberCount.size() < contageous.size()) { // room for all places
+	    memberCount.grow( contageous.size() );
+	}
+	if (members.size() < occupants.size()) members.grow( occupants.size() );
+	final int n = memberCount.get( id );
+	assert n < firstSlot.get( id + 1 ) - firstSlot.get( id ): "too many";
+	members.set( firstSlot.get( id ) + n, p );
+	memberCount.set( id, n + 1 );
+    }
+
+    /** Build the daily timelines of all places.
+     *  <p>This must be called once everyone is in their places and before
+     *  simulation begins.  Nothing happens if nobody is on any timeline.
+     */
+    public static void buildTimelines() {
+	if (memberCount.size() == 0) return; // nobody is on any timeline
+	final int n = count;
+	firstPhase.grow( n + 1 );
+	firstExpected.grow( 1 );
+	for (int id = 0; id < n; id++) {
+	    if ((id < memberCount.size()) && (memberCount.get( id ) > 0)) {
+		buildTimeline( id );
+	    }
+	    firstPhase.set( id + 1, phaseCount );
+	}
+	members = new Store.Ints(); // no longer needed
+	memberCount = new Store.Ints();
+    }
+
+    // make room for one more entry in a column that has count entries
+    private static void growFor( Store.Ints column, int count ) {
+	if (count >= column.size()) {
+	    if (count == Integer.MAX_VALUE - 1) Error.fatal( "column full" );
+	    column.grow( (int)Math.min(
+		Integer.MAX_VALUE - 1, Math.max( 16, count * 2L )
+	    ) );
+	}
+    }
+
+    // build the daily timeline of this place from its members, as the next
+    // phases in the phase columns
+    private static void buildTimeline( int id ) {
+	final int first = firstSlot.get( id ); // this place's first member
+	final int end = first + memberCount.get( id );
+	final TreeSet<Long> times = new TreeSet<>();
+	for (int m = first; m < end; m++) {
+	    Person.addTimesOfDay( members.get( m ), times );
+	}
+	if (times.isEmpty()) times.add( 0L ); // nobody ever leaves
+	for (long t: times) {
+	    final int i = phaseCount;
+	    growFor( phaseStart, i );
+	    growFor( expectedSusceptible, i );
+	    growFor( firstExpected, i + 1 );
+	    phaseStart.set( i, (int)t );
+	    int susceptibles = 0; // how many of those here could be infected
+	    for (int m = first; m < end; m++) {
+		final int p = members.get( m );
+		if (Person.whereAt( p, t ) == id) {
+		    growFor( expected, expectedCount );
+		    expected.set( expectedCount, p );
+		    expectedCount = expectedCount + 1;
+		    if (Person.isSusceptible( p )) {
+			susceptibles = susceptibles + 1;
+		    }
+		}
+	    }
+	    expectedSusceptible.set( i, susceptibles );
+	    firstExpected.set( i + 1, expectedCount );
+	    phaseCount = i + 1;
+	}
+    }
+
+    // how many phases are there in the timeline of this place?
+    private static int phases( int id ) {
+	if (firstPhase.size() == 0) return 0; // no timelines were built
+	return firstPhase.get( id + 1 ) - firstPhase.get( id );
+    }
+
+    // the phase of the timeline at some time, in ticks, as an index into
+    // the phase columns; this is the last phase to start by that time of
+    // day, or if none has, the last phase, which started yesterday
+    private static int phase( int id, long time ) {
+	final long t = Math.floorMod( time, Time.ticksPerDay );
+	int lo = firstPhase.get( id );
+	int hi = firstPhase.get( id + 1 ) - 1;
+	if (t < phaseStart.get( lo )) return hi; // it started yesterday
+	while (lo < hi) { // binary search, phaseStart(lo) <= t
+	    final int mid = (lo + hi + 1) >>> 1;
+	    if (phaseStart.get( mid ) <= t) {
+		lo = mid;
+	    } else {
+		hi = mid - 1;
+	    }
+	}
+	return lo;
+    }
+
+    // the time, in ticks, at which the next phase starts
+    private static long nextPhase( int id, long time ) {
+	final long t = Math.floorMod( time, Time.ticksPerDay );
+	final long midnight = time - t;
+	final int first = firstPhase.get( id );
+	if (t < phaseStart.get( first )) {
+	    return midnight + phaseStart.get( first );
+	}
+	final int i = phase( id, time ) + 1;
+	if (i < firstPhase.get( id + 1 )) return midnight + phaseStart.get( i );
+	return midnight + Time.ticksPerDay + phaseStart.get( first );
+    }
+
+    // how many untracked susceptibles should be here at some time, in ticks
+    private static int expectedSusceptible( int id, long time ) {
+	if (phases( id ) == 0) return 0;
+	return expectedSusceptible.get( phase( id, time ) );
+    }
+
+    /** Signal that a person on the timeline of a place was infected.
+     *  <p>This is called when a person who is not tracked is infected,
+     *  for each place on whose timeline that person is.
+     *  @param id  the number of the place
+     *  @param time  at which the change happens, in ticks
+     *  @param p  the person involved
+     */
+    static void infectedOffTimeline( int id, long time, int p ) {
+	final int now = phase( id, time );
+	final int end = firstPhase.get( id + 1 );
+	for (int i = firstPhase.get( id ); i < end; i++) {
+	    if (Person.whereAt( p, phaseStart.get( i ) ) == id) {
+		expectedSusceptible.set( i, expectedSusceptible.get( i ) - 1 );
+		if (i == now) change( id );
+	    }
+	}
+    }
+
+    // infect one untracked susceptible that should be here now
+    private static void infectExpected( int id, long time ) {
+	final int i = phase( id, time );
+	final int first = firstExpected.get( i );
+	final int n = firstExpected.get( i + 1 ) - first;
+	// as in a well mixed place, pick until one could be infected
+	for (;;) {
+	    final int p = expected.get( first + rand.nextInt( n ) );
+	    if (Person.isSusceptible( p )) {
+		Person.infect( p, time ); // this reschedules the next infection
+		return;
+	    }
+	}
     }
 
     /** Make a person arrive at a place.
      *  <p>This is a schedulable event service routine.
+     *  @param id  the number of the place
      *  @param time when the arrival happens
      *  @param p the person involved
      */
-    void arrive( double time, Person p ) {
-	if (p.isContageous()) contageous( time, +1 );
-	occupants.add( p );
+    static void arrive( int id, double time, int p ) {
+	if (isLeaping( id )) leapTo( id, time );
+	if (Person.isContageous( p )) contageous( id, time, +1 );
+	final int n = occupantCount.get( id );
+	final int slot = firstSlot.get( id ) + n;
+	assert slot < firstSlot.get( id + 1 ): "over capacity";
+	occupants.set( slot, p );
+	Person.occupantSlot.set( p, slot );
+	occupantCount.set( id, n + 1 );
+	if (Person.isSusceptible( p )) {
+	    susceptible.set( id, susceptible.get( id ) + 1 );
+	    if (!isMixed( id )) {
+		final int last = lastSusceptible.get( id );
+		Person.prevSusceptible.set( p, last );
+		Person.nextSusceptible.set( p, -1 );
+		if (last == -1) {
+		    firstSusceptible.set( id, p );
+		} else {
+		    Person.nextSusceptible.set( last, p );
+		}
+		lastSusceptible.set( id, p );
+	    }
+	    if (isMixed( id ) || isLeaping( id )) {
+		Person.cancelInfect( p ); // it applied where p was before
+		change( id );
+	    } else if (engine == Engine.person) {
+		// whatever was pending for p applied where p was before
+		final int c = contageous.get( id );
+		if (c != 0) {
+		    Person.scheduleInfect(
+			p, time, 1 / (c * transmissivity( id ))
+		    );
+		} else {
+		    Person.cancelInfect( p );
+		}
+	    } else if (engine == Engine.place) {
+		change( id );
+	    } else if (engine == Engine.exposure) {
+		// make the person's threshold relative to this place
+		expose( id, time );
+		if (threshold.size() <= p) { // make room for more people
+		    final int m = threshold.size();
+		    threshold.grow( Person.count() );
+		    for (int i = m; i < threshold.size(); i++) {
+			threshold.set( i, Double.NaN );
+		    }
+		}
+		double t = threshold.get( p );
+		if (Double.isNaN( t )) { // first exposure anywhere
+		    t = rand.nextExponential( 1.0 );
+		}
+		t = t + exposure.get( id );
+		threshold.set( p, t );
+		if (t < nextThreshold.get( id )) {
+		    nextThreshold.set( id, t );
+		    change( id );
+		}
+	    }
+	}
     }
 
     /** Make a person depart from a place.
      *  <p>This is a schedulable event service routine.
+     *  @param id  the number of the place
      *  @param time when the departure happens
      *  @param p the person involved
      */
-    void depart( double time, Person p ) {
-	occupants.remove( p );
-	if (p.isContageous()) contageous( time, -1 );
+    static void depart( int id, double time, int p ) {
+	if (isLeaping( id )) leapTo( id, time );
+	// only people who are here depart, everyone who calls this checks
+	// that p is tracked, and the tracked are always in some place
+	final int slot = Person.occupantSlot.get( p );
+	final int first = firstSlot.get( id );
+	assert (slot >= first) && (slot < firstSlot.get( id + 1 ))
+	    && (occupants.get( slot ) == p): "not here";
+
+	// move the last occupant into the slot p leaves
+	final int n = occupantCount.get( id ) - 1;
+	occupantCount.set( id, n );
+	final int last = occupants.get( first + n );
+	occupants.set( slot, last );
+	Person.occupantSlot.set( last, slot );
+	Person.occupantSlot.set( p, -1 );
+
+	if (Person.isSusceptible( p )) {
+	    if ((engine == Engine.exposure)
+	    &&  !isLeaping( id ) && !isMixed( id )) {
+		// take away the person's threshold, less what they got here
+		expose( id, time );
+		threshold.set( p, threshold.get( p ) - exposure.get( id ) );
+	    }
+	    infected( id, time, p );
+	}
+	if (Person.isContageous( p )) contageous( id, time, -1 );
     }
 
-    /** Signal that a person in this place has changed their contageon state.
+    /** Signal that a person in a place has changed their contageon state.
      *  <p>This is a schedulable event service routine but
      *  It is more likely to be called directly from other
      *  event service routines.  It is called when a person arrives or
      *  departs from a place, and also when a person in some place
      *  becomes contageous, recovers or dies.
+     *  @param id  the number of the place
      *  @param time at which contageon change happens
      *  @param c, +1 means one more is contageous, -1 means one less.
      */
-    void contageous( double time, int c ) {
-	contageous = contageous + c;
+    static void contageous( int id, double time, int c ) {
+	if (isLeaping( id )) {
+	    leapTo( id, time );
+	} else if ((engine == Engine.exposure) && !isMixed( id )) {
+	    expose( id, time ); // at the old rate
+	}
+	contageous.set( id, contageous.get( id ) + c );
+	change( id );
+    }
+
+    // note that this place must rework its infection schedules
+    private static void change( int id ) {
+	if (changed.get( id ) == 0) {
+	    changed.set( id, (byte)1 );
+	    if (changedCount == 0) {
+		Simulator.atEndOfInstant( (double t)-> settleAll( t ) );
+	    }
+	    final int n = changedCount;
+	    if (n == changedPlaces.length) {
+		changedPlaces = Arrays.copyOf( changedPlaces, n * 2 );
+	    }
+	    changedPlaces[n] = id;
+	    changedCount = n + 1;
+	}
+    }
+
+    // rework infection schedules for all the places that changed
+    // this is done at the end of each instant where there were changes
+    private static void settleAll( double time ) {
+	for (int i = 0; i < changedCount; i++) {
+	    final int id = changedPlaces[i];
+	    changed.set( id, (byte)0 );
+	    settle( id, time );
+	}
+	changedCount = 0;
+    }
+
+    // rework infection schedules for this place, for whatever engine
+    private static void settle( int id, double time ) {
+	if (isMixed( id )) {
+	    scheduleInfect( id, time );
+	    return;
+	}
+	if (isLeaping( id )) {
+	    scheduleLeap( id, time );
+	    return;
+	}
+	switch (engine) {
+	case person:
+	    // when the number of contageous people in a place changes,
+	    // only the susceptible occupants care
+	    final double delay
+		= 1 / (contageous.get( id ) * transmissivity( id ));
+	    int p = firstSusceptible.get( id );
+	    while (p != -1) {
+		Person.scheduleInfect( p, time, delay );
+		p = Person.nextSusceptible.get( p );
+	    }
+	    break;
+	case place:
+	    scheduleInfect( id, time );
+	    break;
+	case exposure:
+	    expose( id, time );
+	    scheduleCrossing( id, time );
+	    break;
+	}
+    }
+
+    /** Signal that a susceptible person is no longer susceptible here.
+     *  <p>It is called when a susceptible person departs from a place, and
+     *  also when a person in some place is infected.
+     *  @param id  the number of the place
+     *  @param time at which the change happens
+     *  @param p the person involved
+     */
+    static void infected( int id, double time, int p ) {
+	if (isLeaping( id )) leapTo( id, time );
+	if (!isMixed( id )) {
+	    final int prev = Person.prevSusceptible.get( p );
+	    final int next = Person.nextSusceptible.get( p );
+	    if (prev == -1) {
+		firstSusceptible.set( id, next );
+	    } else {
+		Person.nextSusceptible.set( prev, next );
+	    }
+	    if (next == -1) {
+		lastSusceptible.set( id, prev );
+	    } else {
+		Person.prevSusceptible.set( next, prev );
+	    }
+	    Person.prevSusceptible.set( p, -1 );
+	    Person.nextSusceptible.set( p, -1 );
+	}
+	final int s = susceptible.get( id ) - 1;
+	susceptible.set( id, s );
+	if (isMixed( id ) || isLeaping( id ) || (engine == Engine.place)) {
+	    change( id );
+	} else if ((s == 0) && (engine == Engine.exposure)) {
+	    nextThreshold.set( id, Double.POSITIVE_INFINITY ); // no next one
+	}
+    }
+
+    // replace the pending infection event here, if any, with one at the
+    // given time, or cancel it if the time is never
+    private static void reschedule( int id, long goTime ) {
+	final int h = happening.get( id );
+	if (goTime == Time.never) { // nobody can be infected here
+	    if (h != -1) {
+		Simulator.cancel( h );
+		happening.set( id, -1 );
+	    }
+	} else if (h == -1) {
+	    happening.set( id, Simulator.scheduleCancellable(
+		goTime, Person.placeInfectCode, id
+	    ) );
+	} else {
+	    Simulator.reschedule( h, goTime );
+	}
+    }
+
+    // schedule the next infection here, for the place engine and for
+    // well mixed places, counting any untracked susceptibles that should
+    // be here under lazy mobility
+    // because waiting times are exponential, every change in the rate
+    // simply replaces the pending infection with a fresh one
+    private static void scheduleInfect( int id, double time ) {
+	final long now = Time.toTicks( time );
+	final int c = contageous.get( id );
+	final double rate
+	    = (susceptible.get( id ) + expectedSusceptible( id, now ))
+	    * c * transmissivity( id );
+	long goTime = Time.never;
+	if (rate > 0.0) {
+	    goTime = Time.toTicks( time + rand.nextExponential( 1 / rate ) );
+	}
+	phaseStarts.set( id, (byte)0 );
+	if ((phases( id ) > 1) && (c > 0)) { // the rate changes next phase
+	    final long next = nextPhase( id, now );
+	    if (next < goTime) {
+		goTime = next;
+		phaseStarts.set( id, (byte)1 );
+	    }
+	}
+	reschedule( id, goTime );
+    }
+
+    // for tau leaping, infect people for the span of time ending now,
+    // this must be called before anything here changes
+    private static void leapTo( int id, double time ) {
+	final double span = time - leapTime.get( id );
+	if (!(span > 0.0)) return; // already done at this time
+	leapTime.set( id, time );
+	final int s = susceptible.get( id );
+	final int c = contageous.get( id );
+	if ((s == 0) || (c <= 0)) return;
+
+	final int k = rand.nextBinomial(
+	    s, -Math.expm1( -c * transmissivity( id ) * span )
+	);
+	if (k == 0) return;
+
+	// pick k of the susceptibles, each as likely as any other
+	if (victims.length < k) victims = new int[k * 2];
+	int picked = 0;
+	int left = s;
+	int p = firstSusceptible.get( id );
+	while (picked < k) {
+	    if (rand.nextInt( left ) < (k - picked)) {
+		victims[picked] = p;
+		picked = picked + 1;
+	    }
+	    left = left - 1;
+	    p = Person.nextSusceptible.get( p );
+	}
+
+	// now infect them, which takes them off the list
+	final long ticks = Time.toTicks( time );
+	for (int i = 0; i < k; i++) {
+	    Person.infect( victims[i], ticks );
+	}
+    }
+
+    // schedule the end of the current leap, for tau leaping
+    private static void scheduleLeap( int id, double time ) {
+	final double rate = contageous.get( id ) * transmissivity( id );
+	if ((susceptible.get( id ) == 0) || !(rate > 0.0)) { // nobody at risk
+	    reschedule( id, Time.never );
+	} else {
+	    // a step where the expected fraction infected is leapError
+	    final double step = Math.min(
+		leapLimit, -Math.log1p( -leapError ) / rate
+	    );
+	    reschedule( id, Math.max(
+		Time.toTicks( time + step ), Time.toTicks( time ) + 1
+	    ) );
+	}
+    }
+
+    // bring the exposure here up to date, for the exposure engine
+    private static void expose( int id, double time ) {
+	exposure.set( id, exposure.get( id )
+	    + (contageous.get( id ) * transmissivity( id )
+	       * (time - exposureTime.get( id )))
+	);
+	exposureTime.set( id, time );
+    }
+
+    // schedule the time the exposure here reaches the next threshold,
+    // for the exposure engine; exposure must be up to date
+    private static void scheduleCrossing( int id, double time ) {
+	final double rate = contageous.get( id ) * transmissivity( id );
+	final double next = nextThreshold.get( id );
+	if ((susceptible.get( id ) == 0) || !(rate > 0.0)
+	||  (next == Double.POSITIVE_INFINITY)) { // nobody can cross
+	    reschedule( id, Time.never );
+	} else {
+	    reschedule( id, Time.toTicks(
+		time + (Math.max( next - exposure.get( id ), 0.0 ) / rate)
+	    ) );
+	}
+    }
+
+    // infect the occupants whose thresholds have been crossed and find the
+    // next threshold, for the exposure engine
+    private static void crossThresholds( int id, long time ) {
+	final double seconds = Time.toSeconds( time );
+	final double rate = contageous.get( id ) * transmissivity( id );
+	expose( id, seconds );
+	final double e = exposure.get( id );
+	double next = Double.POSITIVE_INFINITY;
+	int p = firstSusceptible.get( id );
+	while (p != -1) {
+	    // in case p is infected
+	    final int after = Person.nextSusceptible.get( p );
+	    // crossed if it would be scheduled now, the same test, rounding
+	    // included, that scheduleCrossing uses, so nobody is left over
+	    if ((rate > 0.0) && (Time.toTicks(
+		seconds + ((threshold.get( p ) - e) / rate)
+	    ) <= time)) {
+		Person.infect( p, time );
+	    } else if (threshold.get( p ) < next) {
+		next = threshold.get( p );
+	    }
+	    p = after;
+	}
+	nextThreshold.set( id, next );
+	scheduleCrossing( id, seconds );
+    }
+
+    /** Infect one susceptible occupant of a place, picked at random.
+     *  <p>This is a schedulable event service routine, for the place
+     *  infection engine, called from the coded event dispatcher.
+     *  Under the exposure engine, instead, it infects those occupants whose
+     *  thresholds have been crossed, and under tau leaping, it ends a leap.
+     *  Well mixed places always infect one occupant.  The victim is found
+     *  by picking occupants at random until one could be infected, which
+     *  takes constant expected time per infection while a fixed fraction
+     *  of the occupants are susceptible.  Under lazy mobility,
+     *  the victim may be someone who is not tracked, or the event may only
+     *  mark the start of a new phase of the day.
+     *  @param time  the time of infection, in ticks
+     *  @param id  the number of the place
+     */
+    static void infectOccupant( long time, int id ) {
+	happening.set( id, -1 ); // the handle is no longer valid
+	if (phaseStarts.get( id ) != 0) { // who is here changed, that is all
+	    phaseStarts.set( id, (byte)0 );
+	    if (changed.get( id ) == 0) {
+		scheduleInfect( id, Time.toSeconds( time ) );
+	    }
+	    return;
+	}
+	final int s = susceptible.get( id );
+	final int expected = expectedSusceptible( id, time );
+	if ((expected > 0) && (rand.nextInt( s + expected ) >= s)) {
+	    // the victim is one of the untracked
+	    infectExpected( id, time );
+	    return;
+	}
+	if (isLeaping( id )) {
+	    final double seconds = Time.toSeconds( time );
+	    leapTo( id, seconds );
+	    if (changed.get( id ) == 0) { // else it is done later
+		scheduleLeap( id, seconds );
+	    }
+	    return;
+	}
+	if (!isMixed( id ) && (engine == Engine.exposure)) { // mixed come last
+	    crossThresholds( id, time );
+	    return;
+	}
+	if (s == 0) return; // they left at this instant
 
-	// when the number of contageous people in a place changes,
-	for (Person p: occupants) {
-	    p.scheduleInfect( time, 1 / (contageous * transmissivity) );
+	// pick occupants until one could be infected; as the susceptibles
+	// dwindle this takes longer, but infections get rarer just as fast,
+	// so the expected work per unit of time stays the same
+	final int first = firstSlot.get( id );
+	for (;;) {
+	    final int p = occupants.get(
+		first + rand.nextInt( occupantCount.get( id ) )
+	    );
+	    if (Person.isSusceptible( p )) {
+		Person.infect( p, time ); // this reschedules the next one
+		return;
+	    }
 	}
     }
 }
@@ -1,55 +1,69 @@
 // PlaceKind.java
 
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 /** Categories of places.
  *  @author Douglas W. Jones
- *  @version Apr. 13, 2021 improved Javadoc comments
+ *  @version Oct. 16, 2026 places and cohorts are numbers
  *  @see Place
  *  @see MyRandom
  *  @see MyScanner
+ *  @see Parallel
  */
 public class PlaceKind {
 
-    // linkage from person to associated place involves a schedule
-    private class PersonSchedule {
-	public Person person;
-	public Schedule schedule;
-	public PersonSchedule( Person p, Schedule s ) {
-	    person = p;
-	    schedule = s;
-	}
-    }
-
     // instance variables from the input
     final String name;     // the name of this category of place
     private double median; // median population for this category
     private double scatter;// scatter of size distribution, reduces to sigma
     private double transmissivity;  // how likely is disease transmission here
+    final boolean leap;    // do places of this kind use tau leaping?
+
+    /** This kind's number, recorded for each place of the kind */
+    final short id;
 
     // instance variables developed during model elaboration
     private double sigma;  // sigma of the log normal population distribution
-    private Place unfilledPlace = null; // a place of this kind being filled
-    private int unfilledCapacity = 0;   // capacity of unfilledPlace
 
-    // a list of all the people associated with this kind of place
-    private final LinkedList<PersonSchedule> people = new LinkedList<>();
+    // all the people associated with this kind of place and, for each, the
+    // number of their schedule, -1 for home; null once they are distributed;
+    // these, and the other columns used to distribute people, are kept
+    // wherever the state of people is, see Store
+    private Store.Ints people = new Store.Ints();
+    private Store.Ints schedules = new Store.Ints();
+    private int peopleCount = 0;
 
     // static variables used for categories of places
-    private static LinkedList<PlaceKind> allPlaceKinds = new LinkedList<>();
+    private static ArrayList<PlaceKind> allPlaceKinds = new ArrayList<>();
     private static final MyRandom rand = MyRandom.stream();
 
+    // place kinds at least this big use tau leaping, see leapAtLeast
+    private static double leapSize = Double.POSITIVE_INFINITY;
+
+    /** Use tau leaping for all big places.
+     *  <p>This must be called, if at all, before any place kinds are made.
+     *  @param size  place kinds with at least this median size leap
+     *  @see Place
+     */
+    public static void leapAtLeast( double size ) {
+	leapSize = size;
+    }
+
     /** Scan a new place category from an input stream.
      *  <p>The stream must contain the following fields, in order:
      *  <br>* the category name
      *  <br>* the median size of each place in this category
      *  <br>* the scatter of place sizes (assuming a log-normal distribution)
      *  <br>* the infectivity of the place
+     *  <br>* optionally, the keyword <tt>leap</tt>
      *  <br>* a semicolon
      *  <p>Infectivity is measure in infections per hour per infected person
      *  in that place.
+     *  <p>With <tt>leap</tt>, or if the median size is big enough, places
+     *  of this kind use tau leaping, an approximation.
      *  @param in  the input stream
+     *  @see leapAtLeast
      */
     public PlaceKind( MyScanner in ) {
 
@@ -67,6 +81,7 @@ public class PlaceKind {
 	    ()-> "place " + name + " " + median + " " + scatter
 	       + ": not followed by transmissivity"
 	); // BUG: conversion factors this is given in per hour!!!
+	final boolean leapAsked = in.tryNextLiteral( MyScanner.leap );
 	in.getNextLiteral(
 	    MyScanner.semicolon,
 	    ()->this.describe() + ": missing semicolon"
@@ -90,6 +105,12 @@ public class PlaceKind {
 	);
 
 	sigma = Math.log( (scatter + median) / median );
+	leap = leapAsked || (median >= leapSize);
+
+	if (allPlaceKinds.size() > Short.MAX_VALUE) {
+	    Error.fatal( "too many place kinds" );
+	}
+	id = (short)allPlaceKinds.size(); // number kinds in order of creation
 	allPlaceKinds.add( this ); // include this in the list of all
     }
 
@@ -99,55 +120,266 @@ public class PlaceKind {
      */
     private String describe() {
 	return "place " + name + " " + median + " " + scatter
-	     + " " + transmissivity;
+	     + " " + transmissivity + (leap ? " leap" : "");
     }
 
-    /** Find or make a place of a particular kind.
-     *  <p>This should be called when a person is to be linked to a place
-     *  of some particular kind, potentially occupying a space in that place.
-     *  @return a place that is an instance of the indicated kind
-     */
-    private Place findPlace() {
-	if (unfilledCapacity <= 0 ) { // need to make a new place
-	    // make new place using a log-normal distribution for the size
-	    unfilledCapacity
-		= (int)Math.round( rand.nextLogNormal( median, sigma) );
-	    unfilledPlace = new Place( this, transmissivity );
-	}
-	unfilledCapacity = unfilledCapacity - 1;
-	return unfilledPlace;
-    }
-
-    /** Add a person to the population of this kind of place.
+    /** Add people to the population of this kind of place.
      *  <p>The entire population of the place kind must be created before
      *  any person can be associated with a particular place of that kind.
-     *  @param p the new person
-     *  @param s the associated schedule
+     *  @param first  the first new person, the others follow in order
+     *  @param n  how many new people
+     *  @param s  the associated schedule
      */
-    public void populate( Person p, Schedule s ) {
-	people.add( new PersonSchedule( p, s ) );
+    public void populate( int first, int n, Schedule s ) {
+	final long m = (long)peopleCount + n;
+	if (m > Integer.MAX_VALUE) Error.fatal( "too many people: " + name );
+	people.grow( (int)m ); // only as much as needed, roles are few
+	schedules.grow( (int)m );
+	final int id = (s == null) ? -1 : s.id;
+	for (int i = 0; i < n; i++) {
+	    people.set( peopleCount + i, first + i );
+	    schedules.set( peopleCount + i, id );
+	}
+	peopleCount = (int)m;
     }
 
     /** Distribute the people from all PlaceKinds to their individual places.
      *  <p>Prior to this, each place kind knows all the people that will be
      *  associated with places of that kind, a list constructed by calls to
-     *  <code>populate()</code>.
-     *  This calls <code>findPlace</code> to create or find places.
+     *  <code>populate()</code>.  Afterward, those lists are discarded.
+     *  <p>The cohorts of people following each schedule to each place are
+     *  made before anyone is put there, each with room for exactly its
+     *  people.
+     *  <p>Shuffling the people, sizing the places and deciding who goes where
+     *  is spread across threads, with random numbers drawn from substreams
+     *  keyed by the part of the work; only emplacing each person, which
+     *  schedules their first events, is done in order, on one thread.
+     *  @see Parallel
      */
     public static void distributePeople() {
 
 	// for each kind of place
 	for (PlaceKind pk: allPlaceKinds) {
+	    final long base = rand.nextLong(); // for this kind's substreams
+
 	    // shuffle its people to break correlations from people to places
-	    Collections.shuffle( pk.people, MyRandom.stream );
+	    pk.shuffle( base );
+
+	    // decide which specific place each person goes to
+	    final Store.Ints place = pk.assignPlaces( base );
+
+	    // make the cohorts that will go there, before anyone joins them;
+	    // the first pass only counts them, to make room for them all
+	    pk.countCohorts( place, false );
+	    pk.countCohorts( place, true );
 
 	    // for each person, associate that person with a specific place
-	    for (PersonSchedule ps: pk.people) {
-		ps.person.emplace( pk.findPlace(), ps.schedule );
+	    for (int i = 0; i < pk.peopleCount; i++) {
+		final int s = pk.schedules.get( i );
+		Person.emplace(
+		    pk.people.get( i ), place.get( i ),
+		    (s < 0) ? null : Schedule.get( s )
+		);
 	    }
+	    pk.people = null; // no longer needed
+	    pk.schedules = null;
+	    pk.peopleCount = 0;
 	}
     }
 
+    // keys of substreams for the parts of each job, see distributePeople
+    private static final long bucketKey = 1L << 32; // plus bucket number
+    private static final long blockKey = 2L << 32;  // plus block number
+
+    // shuffle the people of this kind of place, a chunk at a time
+    // each chunk sends each of its people to a random bucket, and then each
+    // bucket is shuffled on its own; because everyone is as likely to go
+    // to any bucket, each order of the people is as likely as any other
+    private void shuffle( long base ) {
+	final int n = peopleCount;
+	final int chunks = Parallel.chunks( n );
+	final int buckets = Math.min( chunks, 1024 );
+	int[] start = new int[] { 0, n }; // where each bucket starts
+
+	if (buckets > 1) {
+	    // each chunk picks buckets and counts how many go to each
+	    final Store.Shorts bucket = new Store.Shorts();
+	    bucket.grow( n );
+	    final int[][] count = new int[chunks][buckets];
+	    Parallel.forEach( chunks, (int c)-> {
+		final MyRandom r = MyRandom.substream( base, c );
+		final int to = Parallel.chunkEnd( c, n );
+		for (int i = c * Parallel.chunk; i < to; i++) {
+		    final int b = r.nextInt( buckets );
+		    bucket.set( i, (short)b );
+		    count[c][b] = count[c][b] + 1;
+		}
+	    } );
+
+	    // turn the counts into where each chunk's share of each bucket goes
+	    start = new int[buckets + 1];
+	    int where = 0;
+	    for (int b = 0; b < buckets; b++) {
+		start[b] = where;
+		for (int c = 0; c < chunks; c++) {
+		    final int k = count[c][b];
+		    count[c][b] = where;
+		    where = where + k;
+		}
+	    }
+	    start[buckets] = where;
+
+	    // each chunk moves its people into their buckets
+	    final Store.Ints bucketPeople = new Store.Ints();
+	    final Store.Ints bucketSchedules = new Store.Ints();
+	    bucketPeople.grow( n );
+	    bucketSchedules.grow( n );
+	    Parallel.forEach( chunks, (int c)-> {
+		final int to = Parallel.chunkEnd( c, n );
+		for (int i = c * Parallel.chunk; i < to; i++) {
+		    final int b = bucket.get( i );
+		    final int j = count[c][b];
+		    count[c][b] = j + 1;
+		    bucketPeople.set( j, people.get( i ) );
+		    bucketSchedules.set( j, schedules.get( i ) );
+		}
+	    } );
+	    people = bucketPeople;
+	    schedules = bucketSchedules;
+	}
+
+	// shuffle each bucket, the Fisher-Yates way
+	final int[] bounds = start;
+	Parallel.forEach( buckets, (int b)-> {
+	    final MyRandom r = MyRandom.substream( base, bucketKey + b );
+	    final int first = bounds[b];
+	    for (int i = bounds[b + 1] - first; i > 1; i--) {
+		final int j = first + r.nextInt( i );
+		final int k = first + i - 1;
+		final int p = people.get( k );
+		final int s = schedules.get( k );
+		people.set( k, people.get( j ) );
+		schedules.set( k, schedules.get( j ) );
+		people.set( j, p );
+		schedules.set( j, s );
+	    }
+	} );
+    }
+
+    // make places of this kind, enough for all its people, and decide
+    // which place each person goes to, filling the places in order
+    // returns the number of the place for each person, in order
+    private Store.Ints assignPlaces( long base ) {
+	final int n = peopleCount;
+	final int block = 1024; // sizes of places are drawn this many at a time
+
+	// draw the sizes of places, whole blocks at a time, in parallel,
+	// until there is room for everyone; blocks left over are ignored
+	int[] size = new int[0];
+	int places = 0; // how many places are needed so far
+	long room = 0;  // how many people fit in them
+	while (room < n) {
+	    if (places == size.length) { // need more sizes
+		final int blocks = (int)Math.min( 1 << 16,
+		    ((n - room) / (Math.max( 1.0, median ) * block)) + 1
+		);
+		final int first = size.length / block;
+		final int[] more = Arrays.copyOf( size, size.length
+							+ (blocks * block) );
+		Parallel.forEach( blocks, (int j)-> {
+		    final MyRandom r
+			= MyRandom.substream( base, blockKey + first + j );
+		    final int from = (first + j) * block;
+		    for (int i = from; i < from + block; i++) {
+			final double x = r.nextLogNormal( median, sigma );
+			more[i] = (int)Math.round( x );
+		    }
+		} );
+		size = more;
+	    }
+	    room = room + Math.max( 1, size[places] ); // everyone fits one
+	    places = places + 1;
+	}
+
+	// make the places, in order, and note where each one's people start
+	Place.reserve( Place.count() + places, Place.slotCount() + room );
+	final int[] start = new int[places + 1];
+	int firstPlace = -1;
+	for (int k = 0; k < places; k++) {
+	    final int p = Place.make( this, size[k] );
+	    if (k == 0) firstPlace = p;
+	    final long end = (long)start[k] + Math.max( 1, size[k] );
+	    start[k + 1] = (int)Math.min( n, end ); // the last may not fill
+	}
+
+	// each chunk of people finds their places
+	final Store.Ints place = new Store.Ints();
+	place.grow( n );
+	final int first = firstPlace; // places are numbered consecutively
+	Parallel.forEach( Parallel.chunks( n ), (int c)-> {
+	    final int from = c * Parallel.chunk;
+	    final int to = Parallel.chunkEnd( c, n );
+	    int k = Arrays.binarySearch( start, from );
+	    if (k < 0) k = -k - 2; // the place started before this chunk
+	    for (int i = from; i < to; i++) {
+		while (i >= start[k + 1]) k = k + 1;
+		place.set( i, first + k );
+	    }
+	} );
+	return place;
+    }
+
+    // count the cohorts of people following each schedule to each place,
+    // and how many people are in them, and make room for them all or,
+    // if asked, make them, each with room for exactly its people; the
+    // people of each place are together, and the places are in order
+    private void countCohorts( Store.Ints place, boolean make ) {
+	final int[] size = new int[Schedule.count()]; // of each schedule's
+	final int[] used = new int[size.length];      // schedules used here
+	int cohorts = 0;
+	long slots = 0;
+	int i = 0;
+	while (i < peopleCount) { // for each place
+	    final int pl = place.get( i );
+	    int n = 0; // how many schedules are followed to it
+	    for (; (i < peopleCount) && (place.get( i ) == pl); i++) {
+		final int s = schedules.get( i );
+		if (s < 0) continue; // nobody follows a schedule home
+		if (size[s] == 0) {
+		    used[n] = s;
+		    n = n + 1;
+		}
+		size[s] = size[s] + 1;
+	    }
+	    for (int k = 0; k < n; k++) {
+		final int s = used[k];
+		if (make) Schedule.get( s ).makeCohort( pl, size[s] );
+		cohorts = cohorts + 1;
+		slots = slots + size[s];
+		size[s] = 0;
+	    }
+	}
+	if (!make) Schedule.reserve(
+	    Schedule.cohortCount() + cohorts, Schedule.slotCount() + slots
+	);
+    }
+
+    /** Find a category of place by number.
+     *  @param id  the number of the category
+     *  @return the category
+     */
+    static PlaceKind get( int id ) {
+	return allPlaceKinds.get( id );
+    }
+
+    /** How likely is disease transmission in places of this kind?
+     *  @return the transmissivity, in infections per second per infected
+     *  person there
+     */
+    double transmissivity() {
+	return transmissivity;
+    }
+
     /** Find a category of place, by name.
      *  <p>Used to prevent duplicate definitions and to look up place names
      *  when roles are created that are associated with the place.
@@ -1,42 +1,40 @@
 // Role.java
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 
 /** People in the simulated community each have a role.
  *  <p>Roles create links from people to the categories of places they visit
  *  @author Douglas W. Jones
- *  @version Apr. 13, 2021 better Javadoc comments
+ *  @version Oct. 16, 2026 people and links counted in advance
  *  @see Person
- *  @see PlaceSchedule
+ *  @see PlaceKind
  *  @see MyRandom
  *  @see MyScanner
  */
 public class Role {
 
-    // linkage from role to associated place involves a schedule
-    private class PlaceSchedule {
-	public PlaceKind placeKind;
-	public Schedule schedule;
-	public PlaceSchedule( PlaceKind p, Schedule s ) {
-	    placeKind = p;
-	    schedule = s;
-	}
-    }
-
     // instance variables
 
     /** The name of this role */
     public final String name;
 
-    // the list of all of the kinds of places associated with this role
-    private final LinkedList<PlaceSchedule> placeKinds = new LinkedList<>();
+    /** This role's number, recorded for each person in the role */
+    final short id;
+
+    // all of the kinds of places associated with this role, and for each,
+    // the schedule for going there, null for the home
+    private PlaceKind[] placeKinds = new PlaceKind[0];
+    private Schedule[] schedules = new Schedule[0];
+    private int visits = 0; // how many of the schedules are not null
 
     private double fraction;  // fraction of the population in this role
     private int number;       // number of people in this role
 
     // static variables used for summary of all roles
     private static double sum = 0.0F; // sum of all the fractions
-    private static LinkedList<Role> allRoles = new LinkedList<Role>();
+    private static ArrayList<Role> allRoles = new ArrayList<Role>();
 
     /** Scan the description of a new role from some input stream
      *  <p>The stream must contain the following items, in order:
@@ -85,9 +83,9 @@ public class Role {
 	    boolean overlap = false;
 	    if (pk != null) {
 		if (pk == homePlaceKind) duplicated = true;
-		for (PlaceSchedule ps: placeKinds) {
-		    if (ps.placeKind == pk) duplicated = true;
-		    if ((ps.schedule != null) && (ps.schedule.overlap(s))) {
+		for (int i = 0; i < placeKinds.length; i++) {
+		    if (placeKinds[i] == pk) duplicated = true;
+		    if ((schedules[i] != null) && (schedules[i].overlap(s))) {
 			overlap = true;
 		    }
 		}
@@ -101,8 +99,14 @@ public class Role {
 		    this.describe() + " " + placeName + ": schedule overlap?"
 		);
 	    } else { // only record non-duplicate entries
-		placeKinds.add( new PlaceSchedule( pk, s ) );  // schedule all
-		if (s == null) {
+		final int n = placeKinds.length;
+		placeKinds = Arrays.copyOf( placeKinds, n + 1 );
+		schedules = Arrays.copyOf( schedules, n + 1 );
+		placeKinds[n] = pk;
+		schedules[n] = s;  // schedule all
+		if (s != null) {
+		    visits = visits + 1;
+		} else {
 		    if (homePlaceKind != null) Error.warn(
 			this.describe() + " " + placeName + ": a second home?"
 		    );
@@ -127,10 +131,12 @@ public class Role {
 	if (homePlaceKind == null) {
 	    Error.warn( this.describe() + ": no home specified?" );
 	}
-	if (placeKinds.isEmpty()) {
+	if (placeKinds.length == 0) {
 	    Error.warn( this.describe() + ": has no places?" );
 	}
 
+	if (allRoles.size() > Short.MAX_VALUE) Error.fatal( "too many roles" );
+	id = (short)allRoles.size(); // number roles in order of creation
 	allRoles.add( this ); // include this role in the list of all roles
     }
 
@@ -142,6 +148,37 @@ public class Role {
 	return "role " + name + " " + fraction;
     }
 
+    /** Could people in this role go untracked, under lazy mobility?
+     *  <p>They could if every trip they make is certain, so where they are
+     *  is a pure function of the time of day, and if none of the kinds of
+     *  places they go use tau leaping, which must know who is there.
+     *  @return true if they could
+     */
+    public boolean isDeterministic() {
+	for (int i = 0; i < placeKinds.length; i++) {
+	    if ((placeKinds[i] != null) && placeKinds[i].leap) return false;
+	    if ((schedules[i] != null) && !schedules[i].isCertain()) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /** How many places do people in this role visit, not counting home?
+     *  @return the number of places, each visited on its own schedule
+     */
+    int visits() {
+	return visits;
+    }
+
+    /** Find a role, by number.
+     *  @param id  the number of the role
+     *  @return the role
+     */
+    static Role get( int id ) {
+	return allRoles.get( id );
+    }
+
     /** Find a role, by name.
      *  <p>Used to prevent duplicate definition of roles.
      *  As it turns out, there is no case where roles need to be looked up
@@ -165,42 +202,64 @@ public class Role {
      *  categories of places, and then populating the specific places.
      *  The division is needed in order to randomize which specific place
      *  in each category gets visited by each person.
+     *  <p>Much of this work is spread across threads, but the model built
+     *  depends only on the seed of the random numbers.
      *  @param population  the total population to be created
      *  @param infected  the total number of initially infected people
      *  @see Person
      *  @see PlaceKind
+     *  @see Parallel
      */
     public static void populateRoles( int population, int infected ) {
-	int pop = population; // working copy used only in infection decisions
-	int inf = infected;   // working copy used only in infection decisions
 	final MyRandom rand = MyRandom.stream;
 
 	if (allRoles.isEmpty()) Error.fatal( "no roles specified" );
+
+	// everyone's initial events are scheduled at once, see below
+	Simulator.startBulkLoad();
+
+	// how many people are in each role, and how many links they need,
+	// so the columns that hold people are sized exactly, once
+	long people = 0;
+	long links = 0;
 	for (Role r: allRoles) {
-	    // how many people are in this role
 	    r.number = (int)Math.round( (r.fraction / r.sum) * population );
+	    people = people + r.number;
+	    links = links + ((long)r.number * r.visits);
+	}
+	if (people > Integer.MAX_VALUE) Error.fatal( "too many people" );
+	Person.reserve( (int)people, links );
 
-	    // make that many people and infect the right number at random
-	    for (int i = 0; i < r.number; i++) {
-		Person p = new Person( r );
-
-		// the ratio inf/pop is probability this person is infected
-		if (rand.nextFloat() < ((float)inf / (float)pop)) {
-		    p.infect( 0.0 );
-		    inf = inf - 1;
-		}
-		pop = pop - 1;
+	for (Role r: allRoles) {
+	    // make the people in this role
+	    final int first = Person.make( r, r.number );
 
-		// each person is associated all their role's place kinds
-		// note that this does not create places yet
-		for (PlaceSchedule ps: r.placeKinds) {
-		    ps.placeKind.populate( p, ps.schedule );
-		}
+	    // each person is associated all their role's place kinds
+	    // note that this does not create places yet
+	    for (int k = 0; k < r.placeKinds.length; k++) {
+		r.placeKinds[k].populate( first, r.number, r.schedules[k] );
 	    }
 	}
 
+	// infect the right number of people, each as likely as any other;
+	// this is Floyd's algorithm for picking k of n without replacement
+	final int n = Person.count();
+	final BitSet picked = new BitSet( n );
+	for (int i = n - Math.min( infected, n ); i < n; i++) {
+	    final int j = rand.nextInt( i + 1 );
+	    picked.set( picked.get( j ) ? i : j );
+	}
+	int p = picked.nextSetBit( 0 );
+	while (p >= 0) { // infect them in order
+	    Person.infect( p, 0 );
+	    p = picked.nextSetBit( p + 1 );
+	}
+
 	// finish putting people in their places
 	// this actually creates the places and puts people in them
 	PlaceKind.distributePeople();
+	Place.buildTimelines(); // for people who are not tracked, if any
+
+	Simulator.finishBulkLoad();
     }
 }
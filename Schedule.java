@@ -1,8 +1,20 @@
 // Schedule.java
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Set;
+
 /** Tuple of start and end times used for scheduling people's visits to places
+ *  <p>Everyone following the same schedule to the same place is in one
+ *  cohort.  Each cohort, not each person, has one daily event to send its
+ *  members on their trips and, on days when anyone went, one more event to
+ *  bring them home.  Unless every trip is certain, each member draws the
+ *  day of their next trip, so only those who go on a trip are touched.
+ *  <p>There are no cohort objects.  Cohorts are numbered, and what is
+ *  known about them, including who their members are, is kept in columns,
+ *  like the state of people and places.
  *  @author Douglas W. Jones
- *  @version Apr. 13, 2021 better Javadoc comments
+ *  @version Oct. 16, 2026 cohorts kept in columns
  *  @see Person
  *  @see Place
  *  @see MyScanner for the tools used to read schedules
@@ -10,13 +22,52 @@
  *  @see Check for the tools used to check sanity of numbers in schedules
  *  @see Simulator for the tools used to schedule activity under schedules
  *  @see MyRandom for the tools used to assure randomness
+ *  @see Store for where cohorts are kept
  */
 public class Schedule {
     // instance variables
-    private final double startTime; // times are in seconds anno midnight
-    private final double duration;  // duration of visit
+    private final long startTime;   // times are in ticks anno midnight
+    private final long duration;    // duration of visit
     private final double likelihood;// probability this visit will take place
 
+    /** This schedule's number, for the links from people to places */
+    final short id;
+
+    // all the schedules, indexed by number
+    private static final ArrayList<Schedule> allSchedules = new ArrayList<>();
+
+    // the cohorts of all schedules, one entry per cohort in each column,
+    // numbered in order of creation, see Store for where they are kept;
+    // cohorts are made place by place, in order, so the cohorts of each
+    // place are numbered consecutively, and a cohort is found by a binary
+    // search on its place
+    private static int cohortCount = 0; // how many cohorts
+    private static final Store.Ints cohortPlace = new Store.Ints();
+    private static final Store.Shorts cohortSchedule = new Store.Shorts();
+    private static final Store.Ints memberCount = new Store.Ints();
+				// members, some may be dropped on a trip
+    private static final Store.Ints awayCount = new Store.Ints();
+				// who went on the current trip
+    private static int lastCohort = -1; // the cohort most recently found
+
+    // each cohort has a run of member slots, one for each person who
+    // follows its schedule to its place, from its firstSlot up to the next
+    // cohort's; the members are kept in the members column and, of those,
+    // who went on the current trip in the away column
+    private static int slotCount = 0; // how many slots
+    private static final Store.Ints firstSlot = new Store.Ints();
+				// one more entry than cohorts
+    private static final Store.Ints members = new Store.Ints();
+    private static final Store.Ints away = new Store.Ints();
+
+    // unless every trip is certain, the members of each cohort are kept
+    // in a heap, in order of the day of their next trip, given here,
+    // indexed by slot; this column stays empty unless some trip is not
+    private static final Store.Ints tripDay = new Store.Ints();
+
+    // the daily trip of each cohort, null until it has a member
+    private static Simulator.Event[] recurrence = new Simulator.Event[0];
+
     // source of randomness
     static final MyRandom rand = MyRandom.stream;
 
@@ -91,9 +142,23 @@ public class Schedule {
 				   + "): likelihood cannot be over 1.0"
 	    );
 	}
-	startTime = st * Time.hour;
-	duration = (et * Time.hour) - startTime;
+	startTime = Time.toTicks( st * Time.hour );
+	duration = Time.toTicks( et * Time.hour ) - startTime;
 	likelihood = lh;
+
+	if (allSchedules.size() > Short.MAX_VALUE) {
+	    Error.fatal( "too many schedules" );
+	}
+	id = (short)allSchedules.size(); // number in order of creation
+	allSchedules.add( this );
+    }
+
+    /** Find a schedule by number.
+     *  @param id  the number of the schedule
+     *  @return the schedule
+     */
+    static Schedule get( int id ) {
+	return allSchedules.get( id );
     }
 
     /** Compare two schedules to see if they overlap.
@@ -102,49 +167,311 @@ public class Schedule {
      */
     public boolean overlap( Schedule s ) {
 	if (s == null) return false;
-	double thisEnd = this.startTime + this.duration;
+	long thisEnd = this.startTime + this.duration;
 	if (this.startTime <= s.startTime) {
 	    if (s.startTime <= (this.startTime + this.duration)) return true;
 	}
-	double sEnd = s.startTime + s.duration;
+	long sEnd = s.startTime + s.duration;
 	if (s.startTime <= this.startTime) {
 	    if (this.startTime <= (s.startTime + s.duration)) return true;
 	}
 	return false;
     }
 
-    /** Commit a person to following a schedule regarding a place.
-     *  <p>This starts the logical process of making a person follow
-     *  this schedule.
-     *  @param person  the person to commit
-     *  @param place   the schedule that person will follow
+    /** How many schedules are there?
+     *  @return the number of schedules, which are numbered from zero up
      */
-    public void apply( Person person, Place place ) {
-	Simulator.schedule( startTime, (double t)-> go( t, person, place ) );
+    static int count() {
+	return allSchedules.size();
     }
 
-    /** Keep a person on schedule.
-     *  <p>This is a schedulable event service routine.
-     *  <p>This continues the logical process of moving a person according
-     *  to this schedule.
-     *  @param person
-     *  @param place
+    /** Make room for more cohorts.
+     *  <p>This need not be called, but when the number of cohorts is known
+     *  in advance, it sizes the columns exactly, once, instead of growing
+     *  them one step at a time.
+     *  @param n  how many cohorts there will be in all
+     *  @param slots  how many member slots they will have in all, the
+     *  number of people following each schedule to each place
      */
-    private void go( double time, Person person, Place place ) {
-	double tomorrow = time + Time.day;
+    static void reserve( int n, long slots ) {
+	if (slots > Integer.MAX_VALUE) Error.fatal( "too many cohort members" );
+	if (slots > members.size()) {
+	    members.grow( (int)slots );
+	    away.grow( (int)slots );
+	    if (tripDay.size() > 0) { // some trips are not certain
+		tripDay.grow( (int)slots );
+	    }
+	}
+	if (n <= cohortPlace.size()) return;
+	cohortPlace.grow( n );
+	cohortSchedule.grow( n );
+	memberCount.grow( n );
+	awayCount.grow( n );
+	firstSlot.grow( n + 1 );
+	recurrence = Arrays.copyOf( recurrence, n );
+    }
 
-	// first, ensure that we keep following this schedule
-	Simulator.schedule( tomorrow, (double t)-> go( t, person, place ) );
+    /** How many cohorts are there?
+     *  @return the number of cohorts, which are numbered from zero up
+     */
+    static int cohortCount() {
+	return cohortCount;
+    }
 
-	if (rand.nextFloat() < likelihood) {
-	    // second, make the person go there if they take the trip
-	    person.travelTo( time, place );
+    /** How many member slots do all the cohorts have?
+     *  @return the sum of the sizes of all the cohorts
+     */
+    static int slotCount() {
+	return slotCount;
+    }
+
+    /** Make the cohort of people following this schedule to a place.
+     *  <p>Cohorts must be made in order of their places, and each must be
+     *  made before anyone joins it.
+     *  @param place  the number of the place
+     *  @param n  how many people follow this schedule to that place
+     *  @see apply
+     */
+    void makeCohort( int place, int n ) {
+	final int c = cohortCount; // number cohorts in order of creation
+	assert (c == 0) || (cohortPlace.get( c - 1 ) <= place): "out of order";
+
+	// this cohort's run of member slots, one for each person
+	final long slots = (long)slotCount + n;
+	if ((c + 1 > cohortPlace.size()) || (slots > members.size())) {
+	    reserve( // make room for more cohorts
+		(int)Math.min( Integer.MAX_VALUE - 1, Math.max( 16, c * 2L ) ),
+		Math.max( 16, slots * 2 )
+	    );
+	}
+	if (!isCertain() && (tripDay.size() < members.size())) {
+	    tripDay.grow( members.size() );
+	}
+	firstSlot.set( c + 1, (int)slots );
+	slotCount = (int)slots;
+	cohortCount = c + 1;
+
+	cohortPlace.set( c, place );
+	cohortSchedule.set( c, id );
+    }
+
+    // find the cohort following this schedule to a place
+    private int cohort( int place ) {
+	int c = lastCohort; // model construction often uses the same one
+	if ((c >= 0) && (cohortPlace.get( c ) == place)
+	&&  (cohortSchedule.get( c ) == id)) return c;
+	int lo = 0;
+	int hi = cohortCount;
+	while (lo < hi) { // binary search for the place's first cohort
+	    final int mid = (lo + hi) >>> 1;
+	    if (cohortPlace.get( mid ) < place) {
+		lo = mid + 1;
+	    } else {
+		hi = mid;
+	    }
+	}
+	for (c = lo; c < cohortCount; c++) {
+	    if (cohortPlace.get( c ) != place) break;
+	    if (cohortSchedule.get( c ) == id) {
+		lastCohort = c;
+		return c;
+	    }
+	}
+	Error.fatal( "no cohort follows " + this + " to place " + place );
+	return -1; // never happens
+    }
+
+    // add a member to a cohort, whose first chance of a trip is at the
+    // given time; the first member starts the cohort's daily trips
+    private void join( int c, int p, long first ) {
+	if (recurrence[c] == null) {
+	    recurrence[c] = Simulator.schedulePeriodic(
+		first, Time.ticksPerDay, (double t)-> go( c, t )
+	    );
+	}
+	if (isCertain()) {
+	    final int n = memberCount.get( c );
+	    final int slot = firstSlot.get( c ) + n;
+	    assert slot < firstSlot.get( c + 1 ): "over capacity";
+	    members.set( slot, p );
+	    memberCount.set( c, n + 1 );
+	} else {
+	    add( c, p, Math.floorDiv( first, Time.ticksPerDay ) );
+	}
+	if (memberCount.get( c ) == 1) {
+	    Simulator.resume( recurrence[c] ); // if suspended
+	}
+    }
 
-	    // third, make sure we get home if we took the trip
-	    Simulator.schedule(
-		time + duration, (double t)-> person.goHome( t )
+    // the daily trip of a cohort, a schedulable event service routine
+    private void go( int c, double time ) {
+	final int first = firstSlot.get( c );
+	int count = memberCount.get( c );
+	if (isCertain()) { // everyone goes
+	    int live = 0; // members kept so far
+	    for (int i = 0; i < count; i++) {
+		final int p = members.get( first + i );
+		if (!Person.isTracked( p )) continue; // dead or untracked
+		members.set( first + live, p );
+		live = live + 1;
+		if (Person.isBedridden( p )) continue; // never leave home
+		travel( c, time, p );
+	    }
+	    count = live;
+	    memberCount.set( c, count );
+	} else { // only those whose day it is go
+	    final long today = Math.floorDiv(
+		Time.toTicks( time ), Time.ticksPerDay
 	    );
+	    while ((memberCount.get( c ) > 0)
+	    &&     (tripDay.get( first ) <= today)) {
+		final int p = members.get( first );
+		remove( c );
+		if (!Person.isTracked( p )) continue; // dead or untracked
+		if (!Person.isBedridden( p )) travel( c, time, p );
+		add( c, p, today + 1 );
+	    }
+	    count = memberCount.get( c );
+	}
+	if (count == 0) Simulator.suspend( recurrence[c] ); // until a join
+
+	// make sure everyone gets home if anyone took the trip
+	if (awayCount.get( c ) > 0) Simulator.schedule(
+	    Time.toTicks( time ) + duration, Person.comeHomeCode, c
+	);
+    }
+
+    // send one member of a cohort on the trip
+    private static void travel( int c, double time, int p ) {
+	Person.travelTo( p, time, cohortPlace.get( c ) );
+	final int n = awayCount.get( c );
+	away.set( firstSlot.get( c ) + n, p );
+	awayCount.set( c, n + 1 );
+    }
+
+    /** Bring the members of a cohort home from their daily trip.
+     *  <p>This is the coded event service routine for the end of each trip.
+     *  @param time    the time, in ticks
+     *  @param cohort  the number of the cohort
+     *  @see Person
+     */
+    static void comeHome( long time, int cohort ) {
+	final int first = firstSlot.get( cohort );
+	final int n = awayCount.get( cohort );
+	for (int i = 0; i < n; i++) {
+	    Person.goHome( away.get( first + i ), time );
 	}
+	awayCount.set( cohort, 0 );
+    }
+
+    // put a member in the heap of a cohort, to take their next trip on or
+    // after the given day; each day is a trial, so the number of days
+    // skipped before the trip is geometric, exactly as if a coin were
+    // tossed daily; days too far off to matter are all the same
+    private void add( int c, int p, long day ) {
+	if (!(likelihood > 0.0)) return; // never any trip
+	final int first = firstSlot.get( c );
+	final int d = (int)Math.min( Integer.MAX_VALUE, day + Math.min(
+	    Integer.MAX_VALUE, rand.nextGeometric( likelihood )
+	) );
+	int i = memberCount.get( c );
+	assert first + i < firstSlot.get( c + 1 ): "over capacity";
+	memberCount.set( c, i + 1 );
+	while (i > 0) { // sift up
+	    final int parent = (i - 1) / 2;
+	    if (tripDay.get( first + parent ) <= d) break;
+	    members.set( first + i, members.get( first + parent ) );
+	    tripDay.set( first + i, tripDay.get( first + parent ) );
+	    i = parent;
+	}
+	members.set( first + i, p );
+	tripDay.set( first + i, d );
+    }
+
+    // take the member with the earliest trip out of the heap of a cohort
+    private static void remove( int c ) {
+	final int first = firstSlot.get( c );
+	final int count = memberCount.get( c ) - 1;
+	memberCount.set( c, count );
+	final int p = members.get( first + count );
+	final int d = tripDay.get( first + count );
+	if (count == 0) return;
+	int i = 0;
+	for (;;) { // sift down
+	    int child = (2 * i) + 1;
+	    if (child >= count) break;
+	    if ((child + 1 < count) && (tripDay.get( first + child + 1 )
+					< tripDay.get( first + child ))) {
+		child = child + 1;
+	    }
+	    if (d <= tripDay.get( first + child )) break;
+	    members.set( first + i, members.get( first + child ) );
+	    tripDay.set( first + i, tripDay.get( first + child ) );
+	    i = child;
+	}
+	members.set( first + i, p );
+	tripDay.set( first + i, d );
+    }
+
+    /** Commit a person to following a schedule regarding a place.
+     *  <p>This makes the person a member of the cohort following this
+     *  schedule to that place; the first trip is the first on this
+     *  schedule.
+     *  @param person  the person to commit
+     *  @param place   the number of the place
+     *  @see makeCohort
+     */
+    public void apply( int person, int place ) {
+	join( cohort( place ), person, startTime );
+    }
+
+    /** Commit a person to following a schedule, starting later.
+     *  <p>This is like <code>apply(person,place)</code> except that the
+     *  first trip is the first one on this schedule strictly after a given
+     *  time, for people who start following it during the simulation.
+     *  @param person  the person to commit
+     *  @param place   the number of the place
+     *  @param after   the time, in ticks, after which the first trip is made
+     */
+    public void apply( int person, int place, long after ) {
+	final long day = Time.ticksPerDay;
+	final long first = after + 1
+			 + Math.floorMod( startTime - (after + 1), day );
+	join( cohort( place ), person, first );
+    }
+
+    /** Is every trip on this schedule certain to be made?
+     *  <p>If so, where someone following it is at any time is a pure
+     *  function of the time of day.
+     *  @return true if the likelihood is 1.0
+     */
+    public boolean isCertain() {
+	return likelihood >= 1.0;
+    }
+
+    /** Would someone following this schedule be away on a trip?
+     *  @param t  the time, in ticks
+     *  @return true if t is within a visit, assuming the trip is made
+     */
+    public boolean covers( long t ) {
+	return Math.floorMod( t - startTime, Time.ticksPerDay ) < duration;
+    }
+
+    /** When does the visit covering some time end?
+     *  @param t  the time, in ticks, which must be covered
+     *  @return the end of the visit, in ticks
+     *  @see covers
+     */
+    public long endOfVisit( long t ) {
+	return t + duration - Math.floorMod( t - startTime, Time.ticksPerDay );
+    }
+
+    /** Add the times of day at which visits on this schedule begin and end.
+     *  @param times  the set of times, in ticks after midnight, to add to
+     */
+    public void addTimesOfDay( Set<Long> times ) {
+	times.add( startTime );
+	times.add( Math.floorMod( startTime + duration, Time.ticksPerDay ) );
     }
 
     /** Convert a Schedule back to textual form.
@@ -154,8 +481,8 @@ public class Schedule {
      *  @see Schedule for syntax details
      */
     public String toString() {
-	return "(" + startTime/Time.hour
-	     + "-" + (startTime + duration) / Time.hour
+	return "(" + (double)startTime / Time.ticksPerHour
+	     + "-" + (double)(startTime + duration) / Time.ticksPerHour
 	     + " " + likelihood + ")";
     }
 }
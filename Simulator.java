@@ -1,10 +1,26 @@
 //Simulator.java
 
-import java.util.PriorityQueue;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 
 /** Framework for discrete event simulation
+ *  <p>Internally, all times are long integers counting ticks, as defined
+ *  in class <code>Time</code>.  Each method that takes a time has two
+ *  forms, one taking the time in seconds, as a double, and one taking
+ *  the time in ticks, as a long.  The first form just converts the time to
+ *  ticks, rounding it to the nearest tick.
+ *  Actions are passed the time in seconds, but the dispatcher for coded
+ *  events is passed the time in ticks.
+ *  <p>Events scheduled for the same time are triggered in the order they
+ *  were scheduled, so given the same random number seed, every run of a
+ *  simulation is the same.
  *  @author  Douglas W. Jones
- *  @version Apr. 19, 2021 Better information hiding for reschedule, cancel.
+ *  @version Oct. 16, 2026 order of periodic events noted
+ *  @see EventSet
+ *  @see PackedEventHeap
+ *  @see EventSpill
+ *  @see Timetable
  */
 class Simulator {
     private Simulator() {} // prevent construction of instances!  Don't call!
@@ -21,6 +37,21 @@ class Simulator {
 	void trigger( double time );
     }
 
+    /** Functional interface for dispatching coded events
+     *  <p>A coded event is just a time, an event code and an integer subject,
+     *  typically the identity of some simulated object.  There is only one
+     *  dispatcher, so the call that triggers each coded event always goes
+     *  to the same code.  That lets the Java compiler inline the dispatcher,
+     *  which should be a switch on the event code, into the simulation loop.
+     *  <p>Rare events should use <code>Action</code>, there is no need to
+     *  give them codes.
+     *  <p>The time passed to the dispatcher is in ticks.
+     *  @see setDispatcher
+     */
+    public static interface Dispatcher {
+	void dispatch( long time, int code, int subject );
+    }
+
     /** Event is the parent of real events scheduled in the simulator
      *  <p>Because class <code>RealEvent</code> is private to class
      *  <code>simulator</code>, users cannot access fields or methods of
@@ -30,21 +61,149 @@ class Simulator {
     public static class Event {}
 
     /** RealEvents scheduled in the simulation framework
+     *  <p>This is package private only so that the pending event set
+     *  can get at it; no code outside the simulation framework should.
      */
-    private static class RealEvent extends Event {
-	public double time;       // when will this event occur
-	public final Action act;  // what to do then
-	public RealEvent( double t, Action a ) {
+    static class RealEvent extends Event {
+	public long time;         // when will this event occur, in ticks
+	public Action act;        // what to do then
+	public long seq;          // sequence number, to order equal times
+	public int index = -1;    // slot in the pending event set, -1 if none
+				  // or -2 - its place in the current batch
+	public RealEvent next;    // links used by some pending event sets
+	public RealEvent prev;
+	public RealEvent run;
+	public RealEvent( long t, Action a ) {
 	    time = t;
 	    act = a;
 	}
+
+	/** Does this event come before another?
+	 *  @param e  the other event
+	 *  @return true if this event must be simulated first
+	 */
+	public boolean before( RealEvent e ) {
+	    return time < e.time;
+	}
+    }
+
+    /** Recurrences are events that happen periodically
+     *  <p>Like <code>RealEvent</code>, this is package private only so that
+     *  the timetable holding it can get at it.
+     *  @see Timetable
+     */
+    static class Recurrence extends Event {
+	public long time;               // when will this next occur, in ticks
+	public final long period;       // how often does it occur, in ticks
+	public final Action act;        // what to do each time
+	public Timetable.Slot slot = null; // where it is, null if nowhere
+	public int index = -1;          // index within that slot
+	public boolean cancelled = false;
+	public Recurrence( long t, long p, Action a ) {
+	    time = t;
+	    period = p;
+	    act = a;
+	}
     }
 
     // the pending event set, holding all scheduled but not triggered events
-    private static final PriorityQueue<RealEvent> eventSet
-	= new PriorityQueue<>(
-	    ( RealEvent e1, RealEvent e2 )-> Double.compare( e1.time, e2.time )
+    // except for coded events
+    private static EventSet eventSet = new EventHeap();
+
+    // the pending coded events
+    private static final PackedEventHeap codedSet = new PackedEventHeap();
+
+    // far future coded events on disk, null if they are all kept in memory
+    private static EventSpill spill = null;
+
+    // the one and only dispatcher for coded events
+    private static Dispatcher dispatcher = null;
+
+    // the timetables of recurring events, indexed by period
+    private static final HashMap<Long,Timetable> timetables
+	= new HashMap<>();
+    private static Timetable lastTimetable = null; // the last one used
+
+    // the time of the event most recently triggered, in ticks
+    private static long now = 0;
+
+    // the sequence number of the next event scheduled
+    private static long sequence = 0;
+
+    // the number of events triggered so far
+    private static long triggered = 0;
+
+    // the current batch, all the events at time now, in sequence order
+    // but not coded events, which the coded event set batches itself
+    private static RealEvent[] batch = new RealEvent[64];
+    private static int batchSize = 0;
+    private static int batchNext = 0; // the next event in the batch
+    private static final Comparator<RealEvent> bySeq
+	= (RealEvent a, RealEvent b)-> Long.compare( a.seq, b.seq );
+
+    // the actions to take once all the events at time now are done
+    private static Action[] settlers = new Action[8];
+    private static int settlerCount = 0;
+
+    /** Use a calendar queue for the pending event set.
+     *  <p>By default, the pending event set is a binary heap.
+     *  A calendar queue does better when most events are scheduled a short
+     *  and predictable time into the future.
+     *  Coded events are always kept in their own packed binary heap.
+     *  This should be called before any events are scheduled, but if it is
+     *  called later, any pending events are moved to the calendar queue.
+     *  @see CalendarQueue
+     */
+    public static void useCalendarQueue() {
+	EventSet old = eventSet;
+	eventSet = new CalendarQueue();
+	while (!old.isEmpty()) eventSet.add( old.poll() );
+    }
+
+    /** Spill far future coded events to disk.
+     *  <p>By default, all pending events are kept in memory.
+     *  With this, simulated time is divided into windows of width
+     *  <code>w</code>, and coded events without handles are kept in memory
+     *  only if they fall in a window that has already been reached.
+     *  The others are written to files, one per window, and read back
+     *  when their window is reached, so only the near future is in memory.
+     *  The order in which events are triggered is unchanged.
+     *  Windows are at least an hour wide, and there are never more than
+     *  <code>EventSpill.maxPartitions</code> of them on disk, so that a
+     *  narrow window cannot use up open files or memory.
+     *  This must be called before any events are scheduled.
+     *  @param w, the width of each window, in seconds
+     *  @see EventSpill
+     */
+    public static void useSpill( double w ) {
+	spill = new EventSpill(
+	    Math.max( Time.ticksPerHour, Time.toTicks( w ) )
 	);
+    }
+
+    /** Start a bulk load of events.
+     *  <p>Model construction may schedule an event or more for each
+     *  simulated object.  Between the calls to <code>startBulkLoad</code>
+     *  and <code>finishBulkLoad</code>, scheduling an event takes constant
+     *  time, because the pending event sets do not keep their events in
+     *  order.  Finishing the bulk load puts them in order all at once, in
+     *  time linear in the number of events.
+     *  <p>Events may be scheduled, cancelled or rescheduled during a bulk
+     *  load, but the simulation must not be run until it is finished.
+     *  @see finishBulkLoad
+     */
+    public static void startBulkLoad() {
+	eventSet.startBulk();
+	codedSet.startBulk();
+    }
+
+    /** Finish a bulk load of events.
+     *  @see startBulkLoad
+     */
+    public static void finishBulkLoad() {
+	eventSet.finishBulk();
+	codedSet.finishBulk();
+    }
 
     /** Schedule an event to occur at a future time
      *  <p>Typically, users schedule events using a lambda expression for
@@ -61,20 +220,233 @@ class Simulator {
      *  @returns a handle on the scheduled event
      */
     public static Event schedule( double t, Action a ) {
+	return schedule( Time.toTicks( t ), a );
+    }
+
+    /** Schedule an event to occur at a future time, given in ticks
+     *  @param t, the time of the event, in ticks
+     *  @param a, what to do for that event
+     *  @returns a handle on the scheduled event
+     *  @see schedule(double,Action)
+     */
+    public static Event schedule( long t, Action a ) {
 	RealEvent e = new RealEvent( t, a );
+	e.seq = sequence++;
 	eventSet.add( e );
 	return e; // the RealEvent is returned as an Event, minus all detail
     }
 
+    /** Set the dispatcher for coded events.
+     *  <p>This must be called before any coded events are triggered.
+     *  @param d, the dispatcher
+     *  @see Dispatcher
+     */
+    public static void setDispatcher( Dispatcher d ) {
+	dispatcher = d;
+    }
+
+    /** Schedule a coded event to occur at a future time
+     *  <p>When the event occurs, the dispatcher is passed the time,
+     *  the code and the subject.
+     *  Coded events are not objects, they are packed into arrays of
+     *  primitive values, so scheduling them allocates nothing and each
+     *  pending coded event takes a fraction of the memory of other events.
+     *  Coded events scheduled this way cannot be cancelled or rescheduled.
+     *  @param t, the time of the event
+     *  @param c, the event code
+     *  @param s, the subject of the event
+     *  @see Dispatcher
+     *  @see scheduleCancellable
+     */
+    public static void schedule( double t, int c, int s ) {
+	schedule( Time.toTicks( t ), c, s );
+    }
+
+    /** Schedule a coded event to occur at a future time, given in ticks
+     *  @param t, the time of the event, in ticks
+     *  @param c, the event code
+     *  @param s, the subject of the event
+     *  @see schedule(double,int,int)
+     */
+    public static void schedule( long t, int c, int s ) {
+	final long seq = sequence++;
+	final long p = PackedEventHeap.payload( c, s );
+	if ((spill == null) || !spill.add( t, seq, p )) {
+	    codedSet.add( t, seq, p );
+	}
+    }
+
+    /** Schedule a coded event that may be cancelled or rescheduled
+     *  <p>This is just like scheduling any other coded event, except that
+     *  it returns an integer handle on the event.
+     *  The handle is only valid until the event is triggered or cancelled,
+     *  after which the framework will reuse it for some other event,
+     *  so users must forget it then.
+     *  @param t, the time of the event
+     *  @param c, the event code
+     *  @param s, the subject of the event
+     *  @returns a handle on the scheduled event
+     *  @see cancel(int)
+     *  @see reschedule(int,double)
+     */
+    public static int scheduleCancellable( double t, int c, int s ) {
+	return scheduleCancellable( Time.toTicks( t ), c, s );
+    }
+
+    /** Schedule a cancellable coded event at a time given in ticks
+     *  @param t, the time of the event, in ticks
+     *  @param c, the event code
+     *  @param s, the subject of the event
+     *  @returns a handle on the scheduled event
+     *  @see scheduleCancellable(double,int,int)
+     */
+    public static int scheduleCancellable( long t, int c, int s ) {
+	return codedSet.addHandled(
+	    t, sequence++, PackedEventHeap.payload( c, s )
+	);
+    }
+
+    /** Schedule an event to occur periodically
+     *  <p>This is used just like <code>schedule</code>, except that the
+     *  action is triggered again every period, forever, unless it is
+     *  cancelled.  A recurrence can also be suspended and later resumed.
+     *  For example:
+     *  <pre>
+     *    Simulator.schedulePeriodic( start, Time.day, (double t)-> f( t ) );
+     *  </pre>
+     *  <p>Periodic events cost far less than events that reschedule
+     *  themselves, because all the recurrences with the same period and the
+     *  same time of period share one event in the pending event set.
+     *  <p>Recurrences are not ordered among other events at the same time
+     *  as they would be if each one rescheduled itself, so a model whose
+     *  results depend on the order of simultaneous events may give
+     *  different results when moved to periodic events.
+     *  @param t, the time of the first occurrence
+     *  @param p, the period, the time from each occurrence to the next
+     *  @param a, what to do each time
+     *  @returns a handle on the scheduled recurrence
+     *  @see Timetable
+     */
+    public static Event schedulePeriodic( double t, double p, Action a ) {
+	return schedulePeriodic( Time.toTicks( t ), Time.toTicks( p ), a );
+    }
+
+    /** Schedule an event to occur periodically, with times in ticks
+     *  @param t, the time of the first occurrence, in ticks
+     *  @param p, the period, in ticks, which must be positive
+     *  @param a, what to do each time
+     *  @returns a handle on the scheduled recurrence
+     *  @see schedulePeriodic(double,double,Action)
+     */
+    public static Event schedulePeriodic( long t, long p, Action a ) {
+	Recurrence r = new Recurrence( t, p, a );
+	timetable( p ).add( r );
+	return r;
+    }
+
+    // get the timetable for recurrences with period p
+    private static Timetable timetable( long p ) {
+	// model construction typically uses the same timetable over and over
+	if ((lastTimetable != null) && (lastTimetable.period == p)) {
+	    return lastTimetable;
+	}
+	Timetable tt = timetables.get( p );
+	if (tt == null) {
+	    tt = new Timetable( p );
+	    timetables.put( p, tt );
+	}
+	lastTimetable = tt;
+	return tt;
+    }
+
+    /** Put an event back in the pending event set.
+     *  <p>For use only by the simulation framework, for example, by
+     *  timetables reusing the events that drive them.
+     *  @param e, an event that is not pending, with a new time set
+     */
+    static void requeue( RealEvent e ) {
+	e.seq = sequence++;
+	eventSet.add( e );
+    }
+
+    /** Take an action once all the events at the current time are done.
+     *  <p>This lets a model collect the effects of many simultaneous
+     *  events and deal with them just once.  The action is triggered after
+     *  every event at the current time, including events scheduled for this
+     *  same time by other events, but before simulated time advances.
+     *  If it schedules more events at the current time, those are
+     *  triggered next, and they may ask for more end of instant actions.
+     *  Each call asks for one more action, so callers that want just one
+     *  per instant must keep track of whether they already asked.
+     *  @param a, what to do then
+     */
+    public static void atEndOfInstant( Action a ) {
+	if (settlerCount == settlers.length) {
+	    settlers = Arrays.copyOf( settlers, settlerCount * 2 );
+	}
+	settlers[settlerCount] = a;
+	settlerCount = settlerCount + 1;
+    }
+
     /** Cancel a previously scheduled event.
      *  <p>Note that nothing happens if the event being cancelled has
      *  already been simulated or has not been scheduled.
+     *  Cancelling a periodic event cancels all of its future occurrences.
      *  @param e  the event to cancel
      */
     public static void cancel( Event e ) {
-	RealEvent re = (RealEvent)e; // This is not free, but it's cheap
-				     // only pay this price if we cancel
-	eventSet.remove( re );
+	if (e instanceof Recurrence) {
+	    Recurrence r = (Recurrence)e;
+	    r.cancelled = true;
+	    Timetable.remove( r );
+	} else {
+	    RealEvent re = (RealEvent)e; // This is not free, but it's cheap
+					 // only pay this price if we cancel
+	    if (re.index <= -2) { // it is in the current batch
+		batch[-2 - re.index] = null;
+		re.index = -1;
+	    } else {
+		eventSet.remove( re );
+	    }
+	}
+    }
+
+    /** Cancel a previously scheduled coded event.
+     *  <p>Note that nothing happens if the event being cancelled has
+     *  already been simulated, provided its handle has not been reused.
+     *  @param h  the handle on the event to cancel
+     *  @see scheduleCancellable
+     */
+    public static void cancel( int h ) {
+	codedSet.remove( h );
+    }
+
+    /** Suspend a periodic event.
+     *  <p>Its occurrences stop until it is resumed.
+     *  Nothing happens if the event is already suspended or cancelled.
+     *  @param e  the periodic event to suspend
+     *  @see resume
+     */
+    public static void suspend( Event e ) {
+	Timetable.remove( (Recurrence)e );
+    }
+
+    /** Resume a suspended periodic event.
+     *  <p>It occurs next at the first time on its original schedule that is
+     *  not before the current time.
+     *  Nothing happens if the event is not suspended or was cancelled.
+     *  @param e  the periodic event to resume
+     *  @see suspend
+     */
+    public static void resume( Event e ) {
+	Recurrence r = (Recurrence)e;
+	if ((r.slot == null) && !r.cancelled) {
+	    if (r.time < now) { // skip the occurrences missed while suspended
+		final long missed = (now - r.time + r.period - 1) / r.period;
+		r.time = r.time + (missed * r.period);
+	    }
+	    timetable( r.period ).add( r );
+	}
     }
 
     /** Re-schedule a previously scheduled event.
@@ -82,25 +454,148 @@ class Simulator {
      *  already been simulated or has not been scheduled.
      */
     public static void reschedule( Event e, double t ) {
+	reschedule( e, Time.toTicks( t ) );
+    }
+
+    /** Re-schedule a previously scheduled event to a time in ticks
+     *  @see reschedule(Event,double)
+     */
+    public static void reschedule( Event e, long t ) {
 	RealEvent re = (RealEvent)e; // This is not free, but it's cheap
 				     // only pay this price if we reschedule
-	if (eventSet.remove( re )) {
+	if (re.index <= -2) { // move it from the current batch
+	    batch[-2 - re.index] = null;
+	    re.index = -1;
 	    re.time = t;
-	    eventSet.add( re );
+	    requeue( re );
+	} else {
+	    re.seq = sequence++;
+	    eventSet.reschedule( re, t );
 	}
     }
 
+    /** Re-schedule a previously scheduled coded event.
+     *  <p>Note that nothing happens if the event being rescheduled has
+     *  already been simulated, provided its handle has not been reused.
+     *  @param h  the handle on the event to reschedule
+     *  @param t  the new time of the event
+     *  @see scheduleCancellable
+     */
+    public static void reschedule( int h, double t ) {
+	reschedule( h, Time.toTicks( t ) );
+    }
+
+    /** Re-schedule a previously scheduled coded event to a time in ticks
+     *  @param h  the handle on the event to reschedule
+     *  @param t  the new time of the event, in ticks
+     *  @see reschedule(int,double)
+     */
+    public static void reschedule( int h, long t ) {
+	codedSet.reschedule( h, t, sequence++ );
+    }
+
+    /** How many events have been triggered?
+     *  <p>This counts every event taken from the pending event sets, coded
+     *  or not, but periodic events that share a timetable slot count as
+     *  one, and end of instant actions are not counted.
+     *  @returns the number of events triggered so far
+     */
+    public static long triggered() {
+	return triggered;
+    }
+
     /** Run the simulation
      *  Before running the simulation, schedule the initial events
      *  all of the simulation occurs as side effects of scheduled events
      */
     public static void run() {
-	while (!eventSet.isEmpty()) {
-	    RealEvent e = eventSet.remove();
-	    e.act.trigger( e.time );
+	for (;;) {
+	    // find the next instant at which anything happens
+	    now = nextTime();
+	    while ((spill != null) && !spill.isEmpty()
+		&& (spill.loadedUntil() <= now)) {
+		// a spilled event could be earlier, bring some back
+		spill.load( codedSet );
+		now = nextTime();
+	    }
+	    if (codedSet.isEmpty() && eventSet.isEmpty()) break;
+
+	    // take all of the events at that instant, then trigger them
+	    // in the order they were scheduled, merging the two batches
+	    // events scheduled for this same instant go in the next batch
+	    codedSet.takeBatch( now );
+	    takeBatch();
+	    final double seconds = Time.toSeconds( now );
+	    for (;;) {
+		final boolean coded = codedSet.batchHasNext();
+		while ((batchNext < batchSize) && (batch[batchNext] == null)) {
+		    batchNext = batchNext + 1; // skip cancelled events
+		}
+		final RealEvent e
+		    = (batchNext < batchSize) ? batch[batchNext] : null;
+		if ((e != null) && !(coded && (codedSet.batchSeq() < e.seq))) {
+		    batch[batchNext] = null;
+		    batchNext = batchNext + 1;
+		    e.index = -1;
+		    triggered = triggered + 1;
+		    e.act.trigger( seconds );
+		} else if (coded) {
+		    final long p = codedSet.nextFromBatch();
+		    triggered = triggered + 1;
+		    dispatcher.dispatch(
+			now, PackedEventHeap.code( p ),
+			PackedEventHeap.subject( p )
+		    );
+		} else {
+		    break;
+		}
+	    }
+
+	    // if nothing else happens at this time, the instant is over
+	    while ((settlerCount > 0) && (nextTime() != now)) settle();
 	}
     }
-}
 
+    // take the end of instant actions, but not any they add, which wait
+    // until the events they might schedule at this same time are done
+    private static void settle() {
+	final double seconds = Time.toSeconds( now );
+	final int count = settlerCount;
+	for (int i = 0; i < count; i++) {
+	    final Action a = settlers[i];
+	    settlers[i] = null;
+	    a.trigger( seconds );
+	}
+	settlerCount = settlerCount - count;
+	System.arraycopy( settlers, count, settlers, 0, settlerCount );
+	Arrays.fill( settlers, settlerCount, count + settlerCount, null );
+    }
 
+    // the time of the first event in memory, never if there are none
+    private static long nextTime() {
+	final RealEvent first = eventSet.peek();
+	long t = (first == null) ? Time.never : first.time;
+	if (!codedSet.isEmpty() && (codedSet.firstTime() < t)) {
+	    t = codedSet.firstTime();
+	}
+	return t;
+    }
 
+    // take the events at time now from the pending event set into the batch
+    private static void takeBatch() {
+	batchSize = 0;
+	batchNext = 0;
+	RealEvent e = eventSet.peek();
+	while ((e != null) && (e.time == now)) {
+	    eventSet.poll();
+	    if (batchSize == batch.length) {
+		batch = Arrays.copyOf( batch, batchSize * 2 );
+	    }
+	    batch[batchSize] = e;
+	    batchSize = batchSize + 1;
+	    e = eventSet.peek();
+	}
+	Arrays.sort( batch, 0, batchSize, bySeq );
+	for (int i = 0; i < batchSize; i++) batch[i].index = -2 - i;
+    }
+}
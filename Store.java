@@ -0,0 +1,344 @@
+// Store.java
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/** Where the state of people and places is kept.
+ *  <p>The state of people and places is kept in columns, one for each
+ *  attribute, indexed by the number of the person or place.  This class
+ *  defines the layout of each kind of column, how wide its entries are
+ *  and in what byte order, and where all of the columns are kept.
+ *  <p>By default, columns are kept on the Java heap.  They may instead be
+ *  kept off the heap, where the garbage collector never needs to look at
+ *  them, or in a memory-mapped file, so a population too big for memory
+ *  can be paged in and out by the operating system.
+ *  <p>New entries in a column are always zero.  A column holds at most
+ *  <code>Integer.MAX_VALUE</code> entries.  Off the heap, a column is kept
+ *  in as many buffers as it takes, so its size in bytes is not limited by
+ *  the size of one buffer.
+ *  @author agent
+ *  @version Oct. 16, 2026 columns span several buffers
+ *  @see Person
+ *  @see Place
+ */
+class Store {
+
+    // where columns are kept
+    private static enum Where {
+	heap,   // ordinary Java arrays
+	direct, // memory outside the Java heap
+	mapped  // a memory-mapped file
+    }
+    private static Where where = Where.heap;
+
+    // for memory-mapped columns, the file and the offset of its free space
+    private static FileChannel file = null;
+    private static long fileEnd = 0;
+    private static final long pageSize = 4096; // columns start on pages
+
+    /** Keep all columns off the Java heap.
+     *  <p>This must be called, if at all, before any people or places are
+     *  made.
+     */
+    public static void useDirect() {
+	where = Where.direct;
+    }
+
+    /** Keep all columns in a memory-mapped file.
+     *  <p>This must be called, if at all, before any people or places are
+     *  made.  The file is created, or emptied if it exists, and it is
+     *  deleted when the program exits.
+     *  @param name  the name of the file
+     */
+    public static void useMappedFile( String name ) {
+	final Path path = Paths.get( name );
+	try {
+	    file = FileChannel.open( path,
+		StandardOpenOption.CREATE,
+		StandardOpenOption.TRUNCATE_EXISTING,
+		StandardOpenOption.READ,
+		StandardOpenOption.WRITE
+	    );
+	    path.toFile().deleteOnExit();
+	} catch ( IOException e ) {
+	    Error.fatal( "cannot map state to " + name + ": "
+		       + e.getMessage() );
+	}
+	where = Where.mapped;
+    }
+
+    // a zeroed buffer of the given size, off the heap or in the file
+    private static ByteBuffer allocate( int bytes ) {
+	ByteBuffer b = null;
+	if (where == Where.direct) {
+	    b = ByteBuffer.allocateDirect( bytes );
+	} else try { // mapping past the end of the file makes it bigger
+	    b = file.map( FileChannel.MapMode.READ_WRITE, fileEnd, bytes );
+	    final long pages = (bytes + pageSize - 1) / pageSize;
+	    fileEnd = fileEnd + (pages * pageSize);
+	} catch ( IOException e ) {
+	    Error.fatal( "cannot map state: " + e.getMessage() );
+	}
+	return b.order( ByteOrder.nativeOrder() );
+    }
+
+    // Off the heap, each column is kept in chunks, buffers of chunkBytes
+    // each, except that the last may be smaller; entry i of a column whose
+    // entries are 2 to the w bytes wide is in chunk i >>> (chunkShift - w).
+    private static final int chunkShift = 27;
+    private static final int chunkBytes = 1 << chunkShift;
+
+    // make room in the chunks of a column for the given number of bytes;
+    // this returns the new chunks, where only the last of the old chunks,
+    // which may be too small, is ever copied to a bigger one; in a file,
+    // the space that old chunk used is simply abandoned
+    private static ByteBuffer[] extend( ByteBuffer[] chunks, long bytes ) {
+	final int full = (int)(bytes >>> chunkShift); // how many full chunks
+	final int part = (int)(bytes & (chunkBytes - 1)); // bytes in the rest
+	final int n = full + ((part > 0) ? 1 : 0);
+	final ByteBuffer[] c = Arrays.copyOf( chunks, n );
+	for (int i = Math.max( 0, chunks.length - 1 ); i < n; i++) {
+	    final int size = (i < full) ? chunkBytes : part;
+	    if ((c[i] != null) && (c[i].capacity() >= size)) continue;
+	    final ByteBuffer b = allocate( size );
+	    if (c[i] != null) { // copy the old chunk
+		final ByteBuffer old = c[i].duplicate();
+		old.clear();
+		b.put( old );
+		b.clear();
+	    }
+	    c[i] = b;
+	}
+	return c;
+    }
+
+    // Each kind of column below keeps its entries in an array on the heap,
+    // or else in chunks off the heap; only one of the two is ever used.
+    // When a column on the heap grows, its contents are copied to a bigger
+    // array.  The first time a column grows off the heap, whatever is in
+    // its array is copied to its chunks.
+
+    /** A column of bytes.
+     */
+    static final class Bytes {
+	private static final int shift = chunkShift; // see extend
+	private static final int mask = (1 << shift) - 1;
+
+	private byte[] array = new byte[0]; // null if off the heap
+	private ByteBuffer[] chunks = new ByteBuffer[0]; // empty if on the heap
+	private int size = 0; // entries in the chunks
+
+	byte get( int i ) {
+	    final byte[] a = array;
+	    return (a != null) ? a[i] : chunks[i >>> shift].get( i & mask );
+	}
+
+	void set( int i, byte v ) {
+	    final byte[] a = array;
+	    if (a != null) {
+		a[i] = v;
+	    } else {
+		chunks[i >>> shift].put( i & mask, v );
+	    }
+	}
+
+	/** How many entries are there?
+	 *  @return the number of entries, numbered from zero up
+	 */
+	int size() {
+	    return (array != null) ? array.length : size;
+	}
+
+	/** Make room for more entries.
+	 *  @param n  how many entries there will be, if more than now
+	 */
+	void grow( int n ) {
+	    if (n <= size()) return;
+	    if (where == Where.heap) {
+		array = Arrays.copyOf( array, n );
+		return;
+	    }
+	    chunks = extend( chunks, n );
+	    size = n;
+	    if (array != null) { // off the heap from now on
+		final byte[] a = array;
+		array = null;
+		for (int i = 0; i < a.length; i++) set( i, a[i] );
+	    }
+	}
+    }
+
+    /** A column of shorts.
+     */
+    static final class Shorts {
+	private static final int shift = chunkShift - 1; // see extend
+	private static final int mask = (1 << shift) - 1;
+
+	private short[] array = new short[0]; // null if off the heap
+	private ByteBuffer[] chunks = new ByteBuffer[0]; // empty if on the heap
+	private ShortBuffer[] buffers = null; // views of the chunks
+	private int size = 0; // entries in the chunks
+
+	short get( int i ) {
+	    final short[] a = array;
+	    return (a != null) ? a[i] : buffers[i >>> shift].get( i & mask );
+	}
+
+	void set( int i, short v ) {
+	    final short[] a = array;
+	    if (a != null) {
+		a[i] = v;
+	    } else {
+		buffers[i >>> shift].put( i & mask, v );
+	    }
+	}
+
+	/** How many entries are there?
+	 *  @return the number of entries, numbered from zero up
+	 */
+	int size() {
+	    return (array != null) ? array.length : size;
+	}
+
+	/** Make room for more entries.
+	 *  @param n  how many entries there will be, if more than now
+	 */
+	void grow( int n ) {
+	    if (n <= size()) return;
+	    if (where == Where.heap) {
+		array = Arrays.copyOf( array, n );
+		return;
+	    }
+	    chunks = extend( chunks, (long)n * Short.BYTES );
+	    buffers = new ShortBuffer[chunks.length];
+	    for (int c = 0; c < chunks.length; c++) {
+		buffers[c] = chunks[c].asShortBuffer();
+	    }
+	    size = n;
+	    if (array != null) { // off the heap from now on
+		final short[] a = array;
+		array = null;
+		for (int i = 0; i < a.length; i++) set( i, a[i] );
+	    }
+	}
+    }
+
+    /** A column of ints.
+     */
+    static final class Ints {
+	private static final int shift = chunkShift - 2; // see extend
+	private static final int mask = (1 << shift) - 1;
+
+	private int[] array = new int[0]; // null if off the heap
+	private ByteBuffer[] chunks = new ByteBuffer[0]; // empty if on the heap
+	private IntBuffer[] buffers = null; // views of the chunks
+	private int size = 0; // entries in the chunks
+
+	int get( int i ) {
+	    final int[] a = array;
+	    return (a != null) ? a[i] : buffers[i >>> shift].get( i & mask );
+	}
+
+	void set( int i, int v ) {
+	    final int[] a = array;
+	    if (a != null) {
+		a[i] = v;
+	    } else {
+		buffers[i >>> shift].put( i & mask, v );
+	    }
+	}
+
+	/** How many entries are there?
+	 *  @return the number of entries, numbered from zero up
+	 */
+	int size() {
+	    return (array != null) ? array.length : size;
+	}
+
+	/** Make room for more entries.
+	 *  @param n  how many entries there will be, if more than now
+	 */
+	void grow( int n ) {
+	    if (n <= size()) return;
+	    if (where == Where.heap) {
+		array = Arrays.copyOf( array, n );
+		return;
+	    }
+	    chunks = extend( chunks, (long)n * Integer.BYTES );
+	    buffers = new IntBuffer[chunks.length];
+	    for (int c = 0; c < chunks.length; c++) {
+		buffers[c] = chunks[c].asIntBuffer();
+	    }
+	    size = n;
+	    if (array != null) { // off the heap from now on
+		final int[] a = array;
+		array = null;
+		for (int i = 0; i < a.length; i++) set( i, a[i] );
+	    }
+	}
+    }
+
+    /** A column of doubles.
+     */
+    static final class Doubles {
+	private static final int shift = chunkShift - 3; // see extend
+	private static final int mask = (1 << shift) - 1;
+
+	private double[] array = new double[0]; // null if off the heap
+	private ByteBuffer[] chunks = new ByteBuffer[0]; // empty if on the heap
+	private DoubleBuffer[] buffers = null; // views of the chunks
+	private int size = 0; // entries in the chunks
+
+	double get( int i ) {
+	    final double[] a = array;
+	    return (a != null) ? a[i] : buffers[i >>> shift].get( i & mask );
+	}
+
+	void set( int i, double v ) {
+	    final double[] a = array;
+	    if (a != null) {
+		a[i] = v;
+	    } else {
+		buffers[i >>> shift].put( i & mask, v );
+	    }
+	}
+
+	/** How many entries are there?
+	 *  @return the number of entries, numbered from zero up
+	 */
+	int size() {
+	    return (array != null) ? array.length : size;
+	}
+
+	/** Make room for more entries.
+	 *  @param n  how many entries there will be, if more than now
+	 */
+	void grow( int n ) {
+	    if (n <= size()) return;
+	    if (where == Where.heap) {
+		array = Arrays.copyOf( array, n );
+		return;
+	    }
+	    chunks = extend( chunks, (long)n * Double.BYTES );
+	    buffers = new DoubleBuffer[chunks.length];
+	    for (int c = 0; c < chunks.length; c++) {
+		buffers[c] = chunks[c].asDoubleBuffer();
+	    }
+	    size = n;
+	    if (array != null) { // off the heap from now on
+		final double[] a = array;
+		array = null;
+		for (int i = 0; i < a.length; i++) set( i, a[i] );
+	    }
+	}
+    }
+}
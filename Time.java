@@ -1,19 +1,58 @@
 // Time.java
 
 /** All about simulated time
+ *  <p>Model code may measure time in seconds, as doubles, using the units
+ *  given here.  Internally, the simulation framework keeps time as a long
+ *  integer count of ticks, so that times can be compared exactly and
+ *  divided exactly into buckets.  Model code that needs neither rounding
+ *  nor conversion may work in ticks directly.
  *  @author Douglas W. Jones
- *  @version Apr. 6, 2021 lifted from Epidemic.java of that date
+ *  @version Oct. 16, 2026 added integer ticks
  */
 public class Time {
     /** one second of simulated time */
-    public static double second = 1.0F;
+    public static final double second = 1.0F;
 
     /** one minute of simulated time */
-    public static double minute = 60.0F * second;
+    public static final double minute = 60.0F * second;
 
     /** one hour of simulated time */
-    public static double hour = 60.0F * minute;
+    public static final double hour = 60.0F * minute;
 
     /** one day of simulated time */
-    public static double day = 24.0F * hour;
+    public static final double day = 24.0F * hour;
+
+    /** ticks in one second of simulated time, so a tick is a millisecond */
+    public static final long ticksPerSecond = 1000L;
+
+    /** ticks in one minute of simulated time */
+    public static final long ticksPerMinute = 60L * ticksPerSecond;
+
+    /** ticks in one hour of simulated time */
+    public static final long ticksPerHour = 60L * ticksPerMinute;
+
+    /** ticks in one day of simulated time */
+    public static final long ticksPerDay = 24L * ticksPerHour;
+
+    /** a time later than all others, the tick count for infinite times */
+    public static final long never = Long.MAX_VALUE;
+
+    /** Convert a time in seconds to the nearest tick.
+     *  @param t  the time in seconds
+     *  @return the time in ticks, or never if t is infinite or undefined
+     */
+    public static long toTicks( double t ) {
+	final double ticks = t * ticksPerSecond;
+	if (!(ticks < never)) return never; // includes infinity and NaN
+	return Math.round( ticks );
+    }
+
+    /** Convert a time in ticks to seconds.
+     *  @param ticks  the time in ticks
+     *  @return the time in seconds, infinite if ticks is never
+     */
+    public static double toSeconds( long ticks ) {
+	if (ticks == never) return Double.POSITIVE_INFINITY;
+	return ticks / (double)ticksPerSecond;
+    }
 }
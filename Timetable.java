@@ -0,0 +1,125 @@
+// Timetable.java
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** Recurring events that share a common period.
+ *  <p>A timetable is something like a timing wheel.  Each slot of the
+ *  timetable holds all of the recurrences that happen at the same time of
+ *  period, for example, every day at 9:00.  Only the slot, not each
+ *  recurrence, has an event in the pending event set, so a slot holding
+ *  thousands of recurrences costs the pending event set one removal and
+ *  one insertion per period, with no allocation.
+ *  <p>Within each slot, recurrences are triggered in the order they were
+ *  added to the slot.
+ *  <p>Only class <code>Simulator</code> should ever touch this.
+ *  @author agent
+ *  @version Oct. 16, 2026 remember the last slot used
+ *  @see Simulator
+ */
+class Timetable {
+    final long period; // the period shared by all the slots, in ticks
+
+    // the slots, indexed by time of period
+    private final HashMap<Long,Slot> slots = new HashMap<>();
+    private Slot lastSlot = null; // the slot most recently added to
+
+    /** A slot of the timetable.
+     *  <p>The slot's driver is the real event in the pending event set that
+     *  triggers all the recurrences in the slot.
+     */
+    class Slot {
+	private final long phase; // time of period for this slot
+	private final Simulator.RealEvent driver;
+	private Simulator.Recurrence[] members = new Simulator.Recurrence[8];
+	private int count = 0; // members in use, some may be null if removed
+
+	Slot( long p, long t ) {
+	    phase = p;
+	    driver = new Simulator.RealEvent( t, (double time)-> fire( time ) );
+	}
+
+	// trigger all members due at this time and reschedule the driver
+	private void fire( double seconds ) {
+	    final long time = driver.time; // the same time, in ticks
+	    final int due = count; // members added by the actions wait
+	    int live = 0;          // members kept so far
+	    for (int i = 0; i < count; i++) {
+		Simulator.Recurrence r = members[i];
+		if (r == null) continue; // it was removed, drop it
+		members[live] = r;
+		r.index = live;
+		live = live + 1;
+		if ((i < due) && (r.time <= time)) {
+		    r.time = r.time + period;
+		    r.act.trigger( seconds );
+		}
+	    }
+	    Arrays.fill( members, live, count, null );
+	    count = live;
+
+	    if (count > 0) { // keep this slot going
+		driver.time = time + period;
+		Simulator.requeue( driver );
+	    } else { // nothing left, forget this slot
+		slots.remove( phase );
+		if (lastSlot == this) lastSlot = null;
+	    }
+	}
+    }
+
+    /** Make an empty timetable.
+     *  @param p  the period of all the recurrences in this timetable
+     */
+    Timetable( long p ) {
+	period = p;
+    }
+
+    /** Add a recurrence to this timetable.
+     *  @param r  the recurrence, which must not be in any timetable
+     *  @see remove
+     */
+    void add( Simulator.Recurrence r ) {
+	final long phase = Math.floorMod( r.time, period );
+	Slot s = lastSlot; // model construction often uses the same slot
+	if ((s == null) || (s.phase != phase)) s = slots.get( phase );
+	if (s == null) {
+	    s = new Slot( phase, r.time );
+	    slots.put( phase, s );
+	    Simulator.requeue( s.driver );
+	} else if (r.time < s.driver.time) {
+	    // the slot already went off for this time of period, catch up
+	    final long time = r.time;
+	    Simulator.schedule( time, (double t)-> catchUp( time, t, r ) );
+	}
+
+	if (s.count == s.members.length) {
+	    s.members = Arrays.copyOf( s.members, s.count * 2 );
+	}
+	s.members[s.count] = r;
+	r.slot = s;
+	r.index = s.count;
+	s.count = s.count + 1;
+	lastSlot = s;
+    }
+
+    /** Remove a recurrence from its timetable.
+     *  @param r  the recurrence, nothing happens if it is in no timetable
+     *  @see add
+     */
+    static void remove( Simulator.Recurrence r ) {
+	if (r.slot != null) {
+	    r.slot.members[r.index] = null;
+	    r.slot = null;
+	    r.index = -1;
+	}
+    }
+
+    // trigger a recurrence that was added after its slot went off
+    private void catchUp( long time, double seconds, Simulator.Recurrence r ) {
+	if ((r.slot != null) && (r.time <= time)) {
+	    r.time = r.time + period;
+	    r.act.trigger( seconds );
+	}
+    }
+}